@@ -0,0 +1,132 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertArchive;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertArchiveRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertArchiveRepositoryCustom;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.StringJoiner;
+import java.util.function.BinaryOperator;
+
+/**
+ * Retención de alertas: mueve por lotes las alertas resueltas antiguas a alerts_archive
+ * (particionada por mes) para mantener pequeña la tabla activa, y consulta el histórico.
+ */
+@Service
+@Slf4j
+public class AlertArchiveService {
+
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private final AlertArchiveRepository alertArchiveRepository;
+    private final AlertArchiveRepositoryCustom alertArchiveRepositoryCustom;
+    private final TransactionalOperator transactionalOperator;
+
+    @Value("${alerts.retention.days:90}")
+    private int retentionDays;
+
+    @Value("${alerts.retention.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${alerts.retention.partition-months-ahead:2}")
+    private int partitionMonthsAhead;
+
+    public AlertArchiveService(AlertArchiveRepository alertArchiveRepository,
+                               AlertArchiveRepositoryCustom alertArchiveRepositoryCustom,
+                               TransactionalOperator transactionalOperator) {
+        this.alertArchiveRepository = alertArchiveRepository;
+        this.alertArchiveRepositoryCustom = alertArchiveRepositoryCustom;
+        this.transactionalOperator = transactionalOperator;
+    }
+
+    public Flux<AlertArchive> getArchivedAlerts(Long productId, LocalDateTime from, LocalDateTime to,
+                                                int page, int size) {
+        LocalDateTime until = to != null ? to : LocalDateTime.now();
+        LocalDateTime since = from != null ? from : until.minusYears(1);
+        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+
+        return productId != null
+                ? alertArchiveRepository.findByProductIdAndCreatedAtBetweenOrderByCreatedAtDesc(
+                        productId, since, until, pageable)
+                : alertArchiveRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(since, until, pageable);
+    }
+
+    @Scheduled(cron = "${alerts.retention.cron:0 0 3 * * *}")
+    public void runRetention() {
+        log.info("Running alert retention...");
+
+        ensurePartitions()
+                .then(archiveResolvedAlerts())
+                .subscribe(
+                        archived -> log.info("Alert retention completed: {} alerts archived", archived),
+                        error -> log.error("Error in alert retention", error)
+                );
+    }
+
+    /**
+     * Archiva en lotes acotados, cada uno en su propia transacción, hasta agotar las alertas elegibles
+     */
+    public Mono<Long> archiveResolvedAlerts() {
+        return Mono.defer(() -> {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+            return archiveBatch(cutoff)
+                    .expand(archived -> archived < batchSize ? Mono.empty() : archiveBatch(cutoff))
+                    .reduce(0L, Long::sum);
+        });
+    }
+
+    /**
+     * Crea las particiones mensuales faltantes hasta N meses adelante, dividiendo p_future.
+     * Sin particiones mensuales todavía, empieza en el mes de la alerta más antigua (o el actual).
+     */
+    public Mono<Void> ensurePartitions() {
+        YearMonth lastMonth = YearMonth.now().plusMonths(partitionMonthsAhead);
+
+        return alertArchiveRepositoryCustom.findPartitionNames()
+                .filter(name -> name.matches("p\\d{6}"))
+                .map(name -> YearMonth.parse(name.substring(1), PARTITION_MONTH))
+                .reduce(BinaryOperator.maxBy(Comparator.naturalOrder()))
+                .map(latest -> latest.plusMonths(1))
+                .switchIfEmpty(Mono.defer(this::firstPartitionMonth))
+                .filter(firstMissing -> !firstMissing.isAfter(lastMonth))
+                .flatMap(firstMissing -> {
+                    StringJoiner partitions = new StringJoiner(", ");
+                    for (YearMonth month = firstMissing; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+                        partitions.add(String.format("PARTITION p%s VALUES LESS THAN ('%s')",
+                                month.format(PARTITION_MONTH), month.plusMonths(1).atDay(1)));
+                    }
+                    return alertArchiveRepositoryCustom.splitFuturePartition(partitions.toString())
+                            .doOnSuccess(v -> log.info("Alert archive partitions created from {} to {}",
+                                    firstMissing, lastMonth));
+                });
+    }
+
+    private Mono<YearMonth> firstPartitionMonth() {
+        return alertArchiveRepositoryCustom.findOldestCreatedAt()
+                .map(YearMonth::from)
+                .filter(oldest -> oldest.isBefore(YearMonth.now()))
+                .defaultIfEmpty(YearMonth.now());
+    }
+
+    private Mono<Long> archiveBatch(LocalDateTime cutoff) {
+        return alertArchiveRepositoryCustom.findArchivableIds(cutoff, batchSize)
+                .flatMap(alertIds -> alertIds.isEmpty()
+                        ? Mono.just(0L)
+                        : alertArchiveRepositoryCustom.moveToArchive(alertIds).thenReturn((long) alertIds.size()))
+                .as(transactionalOperator::transactional)
+                .doOnNext(archived -> log.debug("Archived batch of {} alerts", archived));
+    }
+}
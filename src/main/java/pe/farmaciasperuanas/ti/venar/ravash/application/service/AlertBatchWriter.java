@@ -0,0 +1,146 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepositoryCustom;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Agrupa las alertas por tamaño o ventana de tiempo (MicroBatcher) y las persiste con un INSERT
+ * multi-fila, de a un lote a la vez. Cada llamador recibe su alerta con el id asignado, o vacío si
+ * ya existía una abierta con la misma huella.
+ */
+@Component
+@Slf4j
+public class AlertBatchWriter {
+
+    private final AlertRepository alertRepository;
+    private final AlertRepositoryCustom alertRepositoryCustom;
+    private final int maxBatchSize;
+    private final MicroBatcher<Alert, Alert> batcher;
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong alertsFlushed = new AtomicLong();
+    private final AtomicLong largestBatch = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong slowestFlushNanos = new AtomicLong();
+
+    public AlertBatchWriter(AlertRepository alertRepository,
+                            AlertRepositoryCustom alertRepositoryCustom,
+                            @Value("${alerts.batch.max-size:200}") int maxBatchSize,
+                            @Value("${alerts.batch.window-ms:250}") long windowMs) {
+        this.alertRepository = alertRepository;
+        this.alertRepositoryCustom = alertRepositoryCustom;
+        this.maxBatchSize = maxBatchSize;
+        this.batcher = new MicroBatcher<>("alert batch writer", maxBatchSize, Duration.ofMillis(windowMs),
+                1, Integer.MAX_VALUE, this::flush);
+    }
+
+    @PostConstruct
+    public void start() {
+        batcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        batcher.stop();
+    }
+
+    public Mono<Alert> write(Alert alert) {
+        return batcher.submit(alert);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public Stats getStats() {
+        long count = flushes.get();
+        return new Stats(
+                count,
+                alertsFlushed.get(),
+                count == 0 ? 0 : (double) alertsFlushed.get() / count,
+                largestBatch.get(),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(flushNanos.get()) / 1000.0 / count,
+                TimeUnit.NANOSECONDS.toMillis(slowestFlushNanos.get())
+        );
+    }
+
+    private Mono<Void> flush(List<MicroBatcher.Request<Alert, Alert>> batch) {
+        long startedAt = System.nanoTime();
+        Set<String> fingerprints = batch.stream()
+                .map(request -> request.item().getFingerprint())
+                .collect(Collectors.toSet());
+
+        return alertRepository.findByFingerprintInAndResolvedFalse(fingerprints)
+                .map(Alert::getFingerprint)
+                .collect(Collectors.toSet())
+                .flatMap(alreadyOpen -> {
+                    // Primera alerta por huella que aún no está abierta en base de datos
+                    Map<String, MicroBatcher.Request<Alert, Alert>> fresh = new LinkedHashMap<>();
+                    batch.stream()
+                            .filter(request -> !alreadyOpen.contains(request.item().getFingerprint()))
+                            .forEach(request -> fresh.putIfAbsent(request.item().getFingerprint(), request));
+
+                    if (fresh.isEmpty()) {
+                        complete(batch, fresh, Map.of());
+                        return Mono.just(Map.<String, Long>of());
+                    }
+                    List<Alert> alerts = fresh.values().stream().map(MicroBatcher.Request::item).toList();
+                    return alertRepositoryCustom.insertAll(alerts)
+                            .thenMany(alertRepository.findByFingerprintInAndResolvedFalse(fresh.keySet()))
+                            .collectMap(Alert::getFingerprint, Alert::getId, HashMap::new)
+                            .doOnNext(stored -> complete(batch, fresh, stored));
+                })
+                .doOnSuccess(stored -> record(batch.size(), System.nanoTime() - startedAt))
+                .then();
+    }
+
+    private void complete(List<MicroBatcher.Request<Alert, Alert>> batch,
+                          Map<String, MicroBatcher.Request<Alert, Alert>> fresh, Map<String, Long> stored) {
+        for (MicroBatcher.Request<Alert, Alert> request : batch) {
+            String fingerprint = request.item().getFingerprint();
+            Long id = stored.get(fingerprint);
+            if (fresh.get(fingerprint) == request && id != null) {
+                request.item().setId(id);
+                request.complete(request.item());
+            } else {
+                request.complete(null);
+            }
+        }
+    }
+
+    private void record(int batchSize, long elapsedNanos) {
+        long count = flushes.incrementAndGet();
+        alertsFlushed.addAndGet(batchSize);
+        largestBatch.accumulateAndGet(batchSize, Math::max);
+        flushNanos.addAndGet(elapsedNanos);
+        slowestFlushNanos.accumulateAndGet(elapsedNanos, Math::max);
+        log.info("Alert batch #{} flushed: size={}, latency={}ms", count, batchSize,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    public record Stats(
+            long flushes,
+            long alertsFlushed,
+            double averageBatchSize,
+            long largestBatchSize,
+            double averageFlushMillis,
+            long slowestFlushMillis
+    ) {}
+}
@@ -0,0 +1,96 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché acotada (LRU) de huellas de alertas abiertas para evitar inserciones duplicadas.
+ * La restricción única uk_alerts_open_fingerprint actúa como respaldo ante fallos de caché.
+ * Cada huella vence tras un TTL: una alerta resuelta en otra instancia o directamente en base de
+ * datos deja de bloquear nuevas alertas a lo sumo un TTL después, y la restricción única vuelve a decidir.
+ */
+@Component
+@Slf4j
+public class AlertDeduplicationCache {
+
+    private static final String NONE = "-";
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final Map<Long, String> fingerprintsById = new HashMap<>();
+    private final LinkedHashMap<String, OpenAlert> openAlerts;
+
+    public AlertDeduplicationCache(@Value("${alerts.dedup.cache-size:10000}") int capacity,
+                                   @Value("${alerts.dedup.ttl-seconds:600}") long ttlSeconds) {
+        this.capacity = capacity;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.openAlerts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OpenAlert> eldest) {
+                if (size() > AlertDeduplicationCache.this.capacity) {
+                    fingerprintsById.remove(eldest.getValue().alertId());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static String fingerprintOf(Alert alert) {
+        return String.join(":",
+                alert.getType(),
+                valueOf(alert.getProductId()),
+                valueOf(alert.getWarehouseId()),
+                valueOf(alert.getBatchNumber()));
+    }
+
+    public synchronized boolean isOpen(String fingerprint) {
+        OpenAlert open = openAlerts.get(fingerprint);
+        if (open == null) {
+            return false;
+        }
+        if (System.nanoTime() - open.registeredAt() >= ttlNanos) {
+            // Vencida: pudo resolverse fuera de esta instancia, se vuelve a consultar la base de datos
+            openAlerts.remove(fingerprint);
+            fingerprintsById.remove(open.alertId());
+            return false;
+        }
+        return true;
+    }
+
+    public synchronized void register(String fingerprint, Long alertId) {
+        OpenAlert previous = openAlerts.put(fingerprint, new OpenAlert(alertId, System.nanoTime()));
+        if (previous != null) {
+            fingerprintsById.remove(previous.alertId());
+        }
+        fingerprintsById.put(alertId, fingerprint);
+    }
+
+    public synchronized void evict(Long alertId) {
+        String fingerprint = fingerprintsById.remove(alertId);
+        if (fingerprint != null) {
+            openAlerts.remove(fingerprint);
+        }
+    }
+
+    public synchronized int size() {
+        return openAlerts.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static String valueOf(Object value) {
+        return value != null ? value.toString() : NONE;
+    }
+
+    private record OpenAlert(Long alertId, long registeredAt) {}
+}
@@ -0,0 +1,83 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.AlertEvent;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Difusión de alertas creadas y resueltas a los suscriptores en vivo.
+ * Cada suscriptor tiene su propia cola acotada: si no la consume a tiempo, se descartan eventos
+ * solo para ese suscriptor sin frenar al resto ni a quien genera las alertas.
+ */
+@Component
+@Slf4j
+public class AlertEventPublisher {
+
+    private static final Sinks.EmitFailureHandler RETRY_NON_SERIALIZED =
+            Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100));
+
+    private final Sinks.Many<AlertEvent> events = Sinks.many().multicast().directBestEffort();
+    private final int subscriberBufferSize;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    public AlertEventPublisher(@Value("${alerts.stream.subscriber-buffer-size:256}") int subscriberBufferSize) {
+        this.subscriberBufferSize = subscriberBufferSize;
+    }
+
+    public void publishCreated(Alert alert) {
+        publish(AlertEvent.created(alert));
+    }
+
+    public void publishResolved(Long alertId, String resolvedBy) {
+        publish(AlertEvent.resolved(alertId, resolvedBy));
+    }
+
+    /**
+     * Emite primero el estado actual y luego los eventos en vivo. La escucha empieza antes de leer
+     * el estado actual, por lo que no se pierden eventos ocurridos durante la carga inicial.
+     */
+    public Flux<AlertEvent> subscribe(Flux<AlertEvent> snapshot) {
+        return Flux.defer(() -> {
+            Sinks.Many<AlertEvent> queue = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<AlertEvent>get(subscriberBufferSize).get());
+            Disposable listener = events.asFlux().subscribe(event -> {
+                if (queue.tryEmitNext(event).isFailure()) {
+                    droppedEvents.incrementAndGet();
+                }
+            });
+            subscribers.incrementAndGet();
+
+            return Flux.concat(snapshot, queue.asFlux())
+                    .doFinally(signal -> {
+                        listener.dispose();
+                        subscribers.decrementAndGet();
+                    });
+        });
+    }
+
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    private void publish(AlertEvent event) {
+        if (subscribers.get() > 0) {
+            events.emitNext(event, RETRY_NON_SERIALIZED);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.Builder;
+import lombok.Getter;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryStockRow;
+
+import java.time.LocalDateTime;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+/**
+ * Regla de alerta compilada: condición, severidad y mensaje sobre una fila de inventario.
+ * Las reglas PRODUCT se evalúan una vez por producto; las BATCH en cada lote.
+ * Las reglas {@code timeBased} cambian con el paso del tiempo y no con movimientos de stock,
+ * así que la evaluación incremental (por movimientos) no las cubre.
+ */
+@Getter
+@Builder
+public class AlertRule {
+
+    public enum Scope {
+        PRODUCT, BATCH
+    }
+
+    private final String type;
+    private final Scope scope;
+    private final BiPredicate<InventoryStockRow, LocalDateTime> condition;
+    private final BiFunction<InventoryStockRow, LocalDateTime, String> severity;
+    private final BiFunction<InventoryStockRow, LocalDateTime, String> message;
+    private final String recommendation;
+    private final boolean timeBased;
+
+    public boolean appliesTo(InventoryStockRow row) {
+        return scope == Scope.BATCH || Integer.valueOf(1).equals(row.getProductRow());
+    }
+}
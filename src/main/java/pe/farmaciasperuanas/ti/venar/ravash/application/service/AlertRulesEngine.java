@@ -0,0 +1,176 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryStockRow;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Motor de reglas de alerta: evalúa todas las reglas declaradas sobre cada fila de un único
+ * recorrido producto+inventario. Agregar una regla no agrega otra consulta.
+ */
+@Component
+@Slf4j
+public class AlertRulesEngine {
+
+    private final List<AlertRule> rules;
+    private final Map<String, RuleMetrics> metrics = new LinkedHashMap<>();
+
+    public AlertRulesEngine(@Value("${alerts.expiration.window-days:7}") int expirationWindowDays,
+                            @Value("${alerts.expiration.critical-days:3}") int expirationCriticalDays) {
+        this.rules = List.of(
+                lowStockRule(),
+                overstockRule(),
+                expiringRule(expirationWindowDays, expirationCriticalDays)
+        );
+        rules.forEach(rule -> metrics.put(rule.getType(), new RuleMetrics(rule.getScope())));
+    }
+
+    public List<Alert> evaluate(InventoryStockRow row, LocalDateTime now) {
+        return evaluate(row, now, false);
+    }
+
+    /**
+     * Solo las reglas que dependen del stock; para filas elegidas por tener movimientos recientes
+     */
+    public List<Alert> evaluateStockDriven(InventoryStockRow row, LocalDateTime now) {
+        return evaluate(row, now, true);
+    }
+
+    private List<Alert> evaluate(InventoryStockRow row, LocalDateTime now, boolean stockDrivenOnly) {
+        List<Alert> alerts = List.of();
+        for (AlertRule rule : rules) {
+            if (!rule.appliesTo(row) || (stockDrivenOnly && rule.isTimeBased())) {
+                continue;
+            }
+            long startedAt = System.nanoTime();
+            boolean matched = rule.getCondition().test(row, now);
+            metrics.get(rule.getType()).record(System.nanoTime() - startedAt, matched);
+
+            if (matched) {
+                if (alerts.isEmpty()) {
+                    alerts = new ArrayList<>(rules.size());
+                }
+                alerts.add(toAlert(rule, row, now));
+            }
+        }
+        return alerts;
+    }
+
+    public List<RuleStats> getRuleStats() {
+        return metrics.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .toList();
+    }
+
+    public void logRuleStats() {
+        getRuleStats().forEach(stats -> log.info(
+                "Alert rule {} [{}]: evaluations={}, matches={}, avg={}ns, total={}ms",
+                stats.type(), stats.scope(), stats.evaluations(), stats.matches(),
+                stats.averageNanos(), stats.totalMillis()));
+    }
+
+    private Alert toAlert(AlertRule rule, InventoryStockRow row, LocalDateTime now) {
+        boolean batchScope = rule.getScope() == AlertRule.Scope.BATCH;
+        return Alert.builder()
+                .productId(row.getProductId())
+                .warehouseId(batchScope ? row.getWarehouseId() : null)
+                .batchNumber(batchScope ? row.getBatchNumber() : null)
+                .type(rule.getType())
+                .severity(rule.getSeverity().apply(row, now))
+                .message(rule.getMessage().apply(row, now))
+                .recommendation(rule.getRecommendation())
+                .build();
+    }
+
+    private AlertRule lowStockRule() {
+        return AlertRule.builder()
+                .type("LOW_STOCK")
+                .scope(AlertRule.Scope.PRODUCT)
+                .condition((row, now) -> row.getMinStock() != null && row.getTotalStock() < row.getMinStock())
+                .severity((row, now) -> row.getTotalStock() == 0 ? "HIGH" : "MEDIUM")
+                .message((row, now) -> String.format("Stock bajo para %s (SKU: %s). Stock actual: %d, Mínimo: %d",
+                        row.getProductName(), row.getSku(), row.getTotalStock(), row.getMinStock()))
+                .recommendation("Realizar pedido inmediato al proveedor")
+                .build();
+    }
+
+    private AlertRule overstockRule() {
+        return AlertRule.builder()
+                .type("OVERSTOCK")
+                .scope(AlertRule.Scope.PRODUCT)
+                .condition((row, now) -> row.getMaxStock() != null
+                        && row.getMaxRowStock() > row.getMaxStock()
+                        && row.getTotalStock() > row.getMaxStock())
+                .severity((row, now) -> "LOW")
+                .message((row, now) -> String.format("Exceso de inventario para %s (SKU: %s). Stock actual: %d, Máximo: %d",
+                        row.getProductName(), row.getSku(), row.getTotalStock(), row.getMaxStock()))
+                .recommendation("Considerar promociones o descuentos para reducir inventario")
+                .build();
+    }
+
+    private AlertRule expiringRule(int windowDays, int criticalDays) {
+        return AlertRule.builder()
+                .type("EXPIRING")
+                .scope(AlertRule.Scope.BATCH)
+                .condition((row, now) -> row.getExpirationDate() != null
+                        && row.getExpirationDate().isBefore(now.plusDays(windowDays)))
+                .severity((row, now) -> daysUntilExpiration(row, now) <= criticalDays ? "HIGH" : "MEDIUM")
+                .message((row, now) -> String.format("Producto próximo a vencer: %s (Lote: %s) en %d días",
+                        row.getProductName(), row.getBatchNumber(), daysUntilExpiration(row, now)))
+                .recommendation("Priorizar venta o considerar devolución al proveedor")
+                .timeBased(true)
+                .build();
+    }
+
+    private static long daysUntilExpiration(InventoryStockRow row, LocalDateTime now) {
+        return Duration.between(now, row.getExpirationDate()).toDays();
+    }
+
+    // Métricas acumuladas por regla
+    private static final class RuleMetrics {
+
+        private final AlertRule.Scope scope;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private RuleMetrics(AlertRule.Scope scope) {
+            this.scope = scope;
+        }
+
+        private void record(long elapsedNanos, boolean matched) {
+            evaluations.increment();
+            nanos.add(elapsedNanos);
+            if (matched) {
+                matches.increment();
+            }
+        }
+
+        private RuleStats toStats(String type) {
+            long count = evaluations.sum();
+            long total = nanos.sum();
+            return new RuleStats(type, scope, count, matches.sum(),
+                    count == 0 ? 0 : total / count, TimeUnit.NANOSECONDS.toMillis(total));
+        }
+    }
+
+    public record RuleStats(
+            String type,
+            AlertRule.Scope scope,
+            long evaluations,
+            long matches,
+            long averageNanos,
+            long totalMillis
+    ) {}
+}
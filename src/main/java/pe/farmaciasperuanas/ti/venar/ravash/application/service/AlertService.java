@@ -3,18 +3,36 @@ package pe.farmaciasperuanas.ti.venar.ravash.application.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.AlertEvent;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockPredictionDTO;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
-import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Inventory;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertWatermark;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ExpiringBatch;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryStockRow;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductMovement;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockLevel;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertWatermarkRepository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
@@ -25,6 +43,45 @@ public class AlertService {
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final PredictionService predictionService;
+    private final AlertDeduplicationCache deduplicationCache;
+    private final AlertBatchWriter alertBatchWriter;
+    private final AlertWatermarkRepository watermarkRepository;
+    private final AlertRulesEngine rulesEngine;
+    private final AlertEventPublisher alertEventPublisher;
+    private final OpenAlertCounters openAlertCounters;
+
+    private static final String MODE_PER_PRODUCT = "per-product";
+    private static final String MODE_RULES = "rules";
+    private static final String MODE_INCREMENTAL = "incremental";
+    private static final String STOCK_LEVEL_WATERMARK = "STOCK_LEVEL";
+    private static final int INCREMENTAL_CHUNK_SIZE = 500;
+    private static final LocalDateTime EXPIRATION_SCAN_START = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    @Value("${alerts.evaluation.mode:rules}")
+    private String evaluationMode;
+
+    @Value("${alerts.rules.page-size:500}")
+    private int rulesPageSize;
+
+    @Value("${alerts.anomaly.chunk-size:500}")
+    private int anomalyChunkSize;
+
+    @Value("${alerts.incremental.enabled:false}")
+    private boolean incrementalEnabled;
+
+    @Value("${alerts.incremental.full-sweep-interval-minutes:60}")
+    private long fullSweepIntervalMinutes;
+
+    private volatile LocalDateTime lastFullSweep;
+
+    @Value("${alerts.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    @Value("${alerts.expiration.window-days:7}")
+    private int expirationWindowDays;
+
+    @Value("${alerts.expiration.page-size:500}")
+    private int expirationPageSize;
 
     public Flux<Alert> getActiveAlerts() {
         return alertRepository.findByResolvedFalseOrderByCreatedAtDesc();
@@ -38,26 +95,99 @@ public class AlertService {
         return alertRepository.findBySeverityAndResolvedFalse("HIGH");
     }
 
+    /**
+     * Alertas abiertas al conectarse y luego las creadas y resueltas en vivo
+     */
+    public Flux<AlertEvent> streamAlerts() {
+        return alertEventPublisher.subscribe(
+                alertRepository.findByResolvedFalseOrderByCreatedAtDesc().map(AlertEvent::snapshot));
+    }
+
+    /**
+     * Crea la alerta solo si no hay otra abierta con la misma huella; emite vacío si es duplicada
+     */
     public Mono<Alert> createAlert(Alert alert) {
+        return createAlert(alert, this::saveAlert);
+    }
+
+    private Mono<Alert> createAlert(Alert alert, Function<Alert, Mono<Alert>> store) {
+        String fingerprint = AlertDeduplicationCache.fingerprintOf(alert);
+        if (deduplicationCache.isOpen(fingerprint)) {
+            log.debug("Skipping duplicate open alert {}", fingerprint);
+            return Mono.empty();
+        }
+
+        alert.setFingerprint(fingerprint);
         alert.setCreatedAt(LocalDateTime.now());
         alert.setResolved(false);
+        return store.apply(alert)
+                .doOnNext(saved -> {
+                    deduplicationCache.register(fingerprint, saved.getId());
+                    openAlertCounters.onCreated(saved);
+                    alertEventPublisher.publishCreated(saved);
+                });
+    }
+
+    private Mono<Alert> saveAlert(Alert alert) {
         return alertRepository.save(alert)
-                .doOnSuccess(saved -> log.info("Alert created: {} - {}", saved.getType(), saved.getMessage()));
+                .doOnNext(saved -> log.info("Alert created: {} - {}", saved.getType(), saved.getMessage()))
+                // Respaldo: la restricción única detecta duplicados que la caché no conocía
+                .onErrorResume(DataIntegrityViolationException.class, e ->
+                        alertRepository.findByFingerprintAndResolvedFalse(alert.getFingerprint())
+                                .doOnNext(existing -> {
+                                    deduplicationCache.register(existing.getFingerprint(), existing.getId());
+                                    log.debug("Open alert {} already stored as {}",
+                                            existing.getFingerprint(), existing.getId());
+                                })
+                                .then(Mono.empty()));
+    }
+
+    /**
+     * Alertas del proceso programado: se agrupan en INSERT multi-fila si el batching está habilitado
+     */
+    private Mono<Alert> createScheduledAlert(Alert alert) {
+        return createAlert(alert, batchEnabled ? alertBatchWriter::write : this::saveAlert);
     }
 
     public Mono<Void> resolveAlert(Long alertId, String resolvedBy) {
-        return alertRepository.resolveAlert(alertId, resolvedBy)
-                .doOnSuccess(v -> log.info("Alert {} resolved by {}", alertId, resolvedBy));
+        return alertRepository.findById(alertId)
+                .filter(alert -> !Boolean.TRUE.equals(alert.getResolved()))
+                .flatMap(alert -> alertRepository.resolveAlert(alertId, resolvedBy)
+                        .filter(updated -> updated > 0)
+                        // Se relee para obtener el resolved_at puesto por la base de datos
+                        .flatMap(updated -> alertRepository.findById(alertId))
+                        .doOnNext(resolved -> {
+                            deduplicationCache.evict(alertId);
+                            openAlertCounters.onResolved(resolved);
+                            alertEventPublisher.publishResolved(alertId, resolvedBy);
+                            log.info("Alert {} resolved by {}", alertId, resolvedBy);
+                        }))
+                .then();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpDeduplicationCache() {
+        alertRepository.findByResolvedFalseOrderByCreatedAtDesc()
+                .filter(alert -> alert.getFingerprint() != null)
+                .take(deduplicationCache.capacity())
+                .subscribe(
+                        alert -> deduplicationCache.register(alert.getFingerprint(), alert.getId()),
+                        error -> log.error("Error warming up alert deduplication cache", error),
+                        () -> log.info("Alert deduplication cache loaded with {} open alerts",
+                                deduplicationCache.size())
+                );
     }
 
     @Scheduled(fixedDelay = 300000) // Cada 5 minutos
     public void checkAndGenerateAlerts() {
         log.info("Running scheduled alert check...");
 
-        // Verificar productos con stock bajo
-        checkLowStockProducts()
-                .then(checkOverstockProducts())
-                .then(checkExpiringProducts())
+        // Reglas de stock y vencimiento en una sola pasada, o los chequeos por separado
+        Mono<Void> inventoryChecks = MODE_RULES.equalsIgnoreCase(evaluationMode)
+                ? runEvaluation(rulesEvaluation()).doOnSuccess(v -> rulesEngine.logRuleStats())
+                : runEvaluation(stockLevelEvaluation()).then(checkExpiringProducts());
+
+        inventoryChecks
                 .then(checkAnomalies())
                 .subscribe(
                         null,
@@ -66,9 +196,149 @@ public class AlertService {
                 );
     }
 
-    private Mono<Void> checkLowStockProducts() {
-        return productRepository.findLowStockProducts()
-                .flatMap(product -> inventoryRepository.findByProductId(product.getId())
+    private Mono<Void> runEvaluation(Evaluation evaluation) {
+        return Mono.defer(() -> incrementalEnabled && !isFullSweepDue()
+                ? runIncremental(evaluation)
+                : runFullSweep(evaluation));
+    }
+
+    private Mono<Void> runFullSweep(Evaluation evaluation) {
+        if (!incrementalEnabled) {
+            return evaluateAll(evaluation);
+        }
+        // Se toma la marca antes del barrido: lo que se mueva durante el barrido entra en la siguiente corrida
+        return inventoryRepository.findLatestMovement()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(latest -> evaluateAll(evaluation)
+                        .then(Mono.defer(() -> {
+                            lastFullSweep = LocalDateTime.now();
+                            return latest
+                                    .map(watermark -> watermarkRepository.upsert(STOCK_LEVEL_WATERMARK, watermark))
+                                    .orElse(Mono.empty());
+                        })));
+    }
+
+    private Mono<Void> evaluateAll(Evaluation evaluation) {
+        EvaluationRun run = new EvaluationRun(evaluation.mode());
+        return evaluation.all().apply(run)
+                .doOnSuccess(v -> run.report());
+    }
+
+    /**
+     * Reevalúa solo los productos cuyo inventario tuvo movimientos desde la marca persistida
+     */
+    private Mono<Void> runIncremental(Evaluation evaluation) {
+        return watermarkRepository.findById(STOCK_LEVEL_WATERMARK)
+                .map(AlertWatermark::getWatermark)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(watermark -> {
+                    if (watermark.isEmpty()) {
+                        return runFullSweep(evaluation);
+                    }
+                    EvaluationRun run = new EvaluationRun(evaluation.mode() + "/" + MODE_INCREMENTAL);
+                    return run.count(inventoryRepository.findProductMovementsSince(watermark.get()))
+                            .collectList()
+                            .flatMap(movements -> {
+                                if (movements.isEmpty()) {
+                                    return Mono.<Void>empty();
+                                }
+                                LocalDateTime next = movements.stream()
+                                        .map(ProductMovement::getLastMovement)
+                                        .max(Comparator.naturalOrder())
+                                        .orElseThrow();
+                                return Flux.fromIterable(movements)
+                                        .map(ProductMovement::getProductId)
+                                        .buffer(INCREMENTAL_CHUNK_SIZE)
+                                        .concatMap(productIds -> evaluation.products().apply(run, productIds))
+                                        .then(watermarkRepository.upsert(STOCK_LEVEL_WATERMARK, next));
+                            })
+                            // Los vencimientos no dependen de movimientos: se revisan en cada corrida
+                            .then(evaluation.timeBased())
+                            .doOnSuccess(v -> run.report());
+                });
+    }
+
+    private boolean isFullSweepDue() {
+        return lastFullSweep == null
+                || lastFullSweep.plusMinutes(fullSweepIntervalMinutes).isBefore(LocalDateTime.now());
+    }
+
+    private Evaluation stockLevelEvaluation() {
+        return new Evaluation(
+                evaluationMode,
+                run -> MODE_PER_PRODUCT.equalsIgnoreCase(evaluationMode)
+                        ? checkLowStockProducts(run).then(checkOverstockProducts(run))
+                        : evaluateStockLevels(run, run.count(inventoryRepository.findOutOfRangeStockLevels())),
+                (run, productIds) -> evaluateStockLevels(run,
+                        run.count(inventoryRepository.findOutOfRangeStockLevelsByProductIds(productIds))),
+                Mono.empty() // los vencimientos se revisan aparte en cada corrida
+        );
+    }
+
+    private Evaluation rulesEvaluation() {
+        return new Evaluation(
+                MODE_RULES,
+                run -> evaluateRules(run, findInventoryStockRows(run), rulesEngine::evaluate),
+                (run, productIds) -> evaluateRules(run,
+                        run.count(inventoryRepository.findInventoryStockRowsByProductIds(productIds)),
+                        rulesEngine::evaluateStockDriven),
+                Mono.defer(this::checkExpiringProducts)
+        );
+    }
+
+    /**
+     * Genera alertas de stock bajo y sobrestock a partir del stock agregado por producto
+     */
+    private Mono<Void> evaluateStockLevels(EvaluationRun run, Flux<ProductStockLevel> levels) {
+        return levels
+                .flatMap(level -> {
+                    if (level.getMinStock() != null && level.getTotalStock() < level.getMinStock()) {
+                        return run.alert(createLowStockAlert(level));
+                    }
+                    if (level.getMaxStock() != null && level.getTotalStock() > level.getMaxStock()) {
+                        return run.alert(createOverstockAlert(level));
+                    }
+                    return Mono.empty();
+                }, alertBatchWriter.getMaxBatchSize())
+                .then();
+    }
+
+    /**
+     * Aplica las reglas declaradas a cada fila del recorrido producto+inventario
+     */
+    private Mono<Void> evaluateRules(EvaluationRun run, Flux<InventoryStockRow> rows,
+                                     BiFunction<InventoryStockRow, LocalDateTime, List<Alert>> rules) {
+        LocalDateTime now = LocalDateTime.now();
+        return rows
+                .concatMapIterable(row -> rules.apply(row, now))
+                .flatMap(alert -> run.alert(createScheduledAlert(alert)), alertBatchWriter.getMaxBatchSize())
+                .then();
+    }
+
+    /**
+     * Recorre el inventario por páginas de productos (keyset sobre product_id). El fin del recorrido
+     * lo decide la página de ids, no las filas: un product_id sin fila en products no trae filas
+     * pero no debe cortar el recorrido.
+     */
+    private Flux<InventoryStockRow> findInventoryStockRows(EvaluationRun run) {
+        return findInventoryProductIdsPage(run, 0L)
+                .expand(productIds -> productIds.size() < rulesPageSize
+                        ? Mono.empty()
+                        : findInventoryProductIdsPage(run, productIds.get(productIds.size() - 1)))
+                .filter(productIds -> !productIds.isEmpty())
+                .concatMap(productIds -> run.count(inventoryRepository.findInventoryStockRowsByProductIds(productIds)));
+    }
+
+    private Mono<List<Long>> findInventoryProductIdsPage(EvaluationRun run, Long afterProductId) {
+        return run.count(inventoryRepository.findInventoryProductIdsPage(afterProductId, rulesPageSize))
+                .collectList();
+    }
+
+    private Mono<Void> checkLowStockProducts(EvaluationRun run) {
+        return run.count(productRepository.findLowStockProducts())
+                .flatMap(product -> run.count(inventoryRepository.findByProductId(product.getId()))
                         .collectList()
                         .flatMap(inventories -> {
                             int totalStock = inventories.stream()
@@ -76,16 +346,16 @@ public class AlertService {
                                     .sum();
 
                             if (totalStock < product.getMinStock()) {
-                                return createLowStockAlert(product, totalStock);
+                                return run.alert(createLowStockAlert(toStockLevel(product, totalStock)));
                             }
                             return Mono.empty();
                         }))
                 .then();
     }
 
-    private Mono<Void> checkOverstockProducts() {
-        return productRepository.findOverstockProducts()
-                .flatMap(product -> inventoryRepository.findByProductId(product.getId())
+    private Mono<Void> checkOverstockProducts(EvaluationRun run) {
+        return run.count(productRepository.findOverstockProducts())
+                .flatMap(product -> run.count(inventoryRepository.findByProductId(product.getId()))
                         .collectList()
                         .flatMap(inventories -> {
                             int totalStock = inventories.stream()
@@ -93,7 +363,7 @@ public class AlertService {
                                     .sum();
 
                             if (product.getMaxStock() != null && totalStock > product.getMaxStock()) {
-                                return createOverstockAlert(product, totalStock);
+                                return run.alert(createOverstockAlert(toStockLevel(product, totalStock)));
                             }
                             return Mono.empty();
                         }))
@@ -101,77 +371,153 @@ public class AlertService {
     }
 
     private Mono<Void> checkExpiringProducts() {
-        return inventoryRepository.findAll()
-                .filter(inv -> inv.getExpirationDate() != null)
-                .filter(inv -> inv.getExpirationDate().isBefore(LocalDateTime.now().plusDays(7)))
-                .flatMap(inventory -> productRepository.findById(inventory.getProductId())
-                        .flatMap(product -> createExpirationAlert(product, inventory)))
+        return findExpiringBatches(LocalDateTime.now().plusDays(expirationWindowDays))
+                .flatMap(this::createExpirationAlert, alertBatchWriter.getMaxBatchSize())
                 .then();
     }
 
+    /**
+     * Recorre por páginas (keyset sobre expiration_date, id) los lotes que vencen antes de la fecha límite
+     */
+    private Flux<ExpiringBatch> findExpiringBatches(LocalDateTime until) {
+        return findExpiringBatchesPage(until, EXPIRATION_SCAN_START, 0L)
+                .expand(page -> {
+                    if (page.size() < expirationPageSize) {
+                        return Mono.empty();
+                    }
+                    ExpiringBatch last = page.get(page.size() - 1);
+                    return findExpiringBatchesPage(until, last.getExpirationDate(), last.getInventoryId());
+                })
+                .concatMapIterable(page -> page);
+    }
+
+    private Mono<List<ExpiringBatch>> findExpiringBatchesPage(LocalDateTime until, LocalDateTime afterDate,
+                                                              Long afterId) {
+        return inventoryRepository.findExpiringBatchesPage(until, afterDate, afterId, expirationPageSize)
+                .collectList();
+    }
+
     private Mono<Void> checkAnomalies() {
-        // Detectar anomalías en patrones de consumo
-        return productRepository.findByActiveTrue()
-                .flatMap(product -> predictionService.predictStockForProduct(product.getId())
-                        .filter(prediction -> prediction.getConfidenceLevel() < 60) // Baja confianza indica anomalía
-                        .flatMap(prediction -> createAnomalyAlert(product, prediction)))
-                .then();
+        // Detectar anomalías en patrones de consumo, por lotes de productos activos
+        return Mono.defer(() -> {
+            long startedAt = System.nanoTime();
+            AtomicInteger scored = new AtomicInteger();
+            AtomicInteger anomalies = new AtomicInteger();
+
+            return productRepository.findByActiveTrue()
+                    .buffer(anomalyChunkSize)
+                    .concatMap(predictionService::predictStockForProducts)
+                    .doOnNext(prediction -> scored.incrementAndGet())
+                    .filter(prediction -> prediction.getConfidenceLevel() < 60) // Baja confianza indica anomalía
+                    .flatMap(prediction -> createAnomalyAlert(prediction)
+                            .doOnNext(alert -> anomalies.incrementAndGet()), alertBatchWriter.getMaxBatchSize())
+                    .then()
+                    .doOnSuccess(v -> log.info("Anomaly check completed: products={}, alerts={}, duration={}ms",
+                            scored.get(), anomalies.get(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt)));
+        });
     }
 
-    private Mono<Alert> createLowStockAlert(Product product, int currentStock) {
+    private Mono<Alert> createLowStockAlert(ProductStockLevel level) {
         Alert alert = Alert.builder()
-                .productId(product.getId())
+                .productId(level.getProductId())
                 .type("LOW_STOCK")
-                .severity(currentStock == 0 ? "HIGH" : "MEDIUM")
+                .severity(level.getTotalStock() == 0 ? "HIGH" : "MEDIUM")
                 .message(String.format("Stock bajo para %s (SKU: %s). Stock actual: %d, Mínimo: %d",
-                        product.getName(), product.getSku(), currentStock, product.getMinStock()))
+                        level.getName(), level.getSku(), level.getTotalStock(), level.getMinStock()))
                 .recommendation("Realizar pedido inmediato al proveedor")
                 .build();
 
-        return createAlert(alert);
+        return createScheduledAlert(alert);
     }
 
-    private Mono<Alert> createOverstockAlert(Product product, int currentStock) {
+    private Mono<Alert> createOverstockAlert(ProductStockLevel level) {
         Alert alert = Alert.builder()
-                .productId(product.getId())
+                .productId(level.getProductId())
                 .type("OVERSTOCK")
                 .severity("LOW")
                 .message(String.format("Exceso de inventario para %s (SKU: %s). Stock actual: %d, Máximo: %d",
-                        product.getName(), product.getSku(), currentStock, product.getMaxStock()))
+                        level.getName(), level.getSku(), level.getTotalStock(), level.getMaxStock()))
                 .recommendation("Considerar promociones o descuentos para reducir inventario")
                 .build();
 
-        return createAlert(alert);
+        return createScheduledAlert(alert);
     }
 
-    private Mono<Alert> createExpirationAlert(Product product, Inventory inventory) {
+    private Mono<Alert> createExpirationAlert(ExpiringBatch batch) {
         long daysUntilExpiration = java.time.Duration.between(
-                LocalDateTime.now(), inventory.getExpirationDate()).toDays();
+                LocalDateTime.now(), batch.getExpirationDate()).toDays();
 
         Alert alert = Alert.builder()
-                .productId(product.getId())
-                .warehouseId(inventory.getWarehouseId())
+                .productId(batch.getProductId())
+                .warehouseId(batch.getWarehouseId())
+                .batchNumber(batch.getBatchNumber())
                 .type("EXPIRING")
                 .severity(daysUntilExpiration <= 3 ? "HIGH" : "MEDIUM")
                 .message(String.format("Producto próximo a vencer: %s (Lote: %s) en %d días",
-                        product.getName(), inventory.getBatchNumber(), daysUntilExpiration))
+                        batch.getProductName(), batch.getBatchNumber(), daysUntilExpiration))
                 .recommendation("Priorizar venta o considerar devolución al proveedor")
                 .build();
 
-        return createAlert(alert);
+        return createScheduledAlert(alert);
     }
 
-    private Mono<Alert> createAnomalyAlert(Product product, Object prediction) {
+    private Mono<Alert> createAnomalyAlert(StockPredictionDTO prediction) {
         Alert alert = Alert.builder()
-                .productId(product.getId())
+                .productId(prediction.getProductId())
                 .type("ANOMALY")
                 .severity("MEDIUM")
                 .message(String.format("Patrón de consumo anómalo detectado para %s (SKU: %s)",
-                        product.getName(), product.getSku()))
+                        prediction.getProductName(), prediction.getSku()))
                 .recommendation("Revisar histórico de ventas y verificar datos")
                 .build();
 
-        return createAlert(alert);
+        return createScheduledAlert(alert);
     }
-}
 
+    private ProductStockLevel toStockLevel(Product product, int totalStock) {
+        return ProductStockLevel.builder()
+                .productId(product.getId())
+                .sku(product.getSku())
+                .name(product.getName())
+                .minStock(product.getMinStock())
+                .maxStock(product.getMaxStock())
+                .totalStock(totalStock)
+                .build();
+    }
+
+    // Evaluación completa, acotada a productos (modo incremental) y de reglas por tiempo de un mismo modo
+    private record Evaluation(
+            String mode,
+            Function<EvaluationRun, Mono<Void>> all,
+            BiFunction<EvaluationRun, List<Long>, Mono<Void>> products,
+            Mono<Void> timeBased
+    ) {}
+
+    // Contadores de una ejecución para comparar los modos de evaluación
+    private static final class EvaluationRun {
+
+        private final String mode;
+        private final long startedAt = System.nanoTime();
+        private final AtomicInteger queries = new AtomicInteger();
+        private final AtomicInteger alerts = new AtomicInteger();
+
+        private EvaluationRun(String mode) {
+            this.mode = mode;
+        }
+
+        private <T> Flux<T> count(Flux<T> query) {
+            return query.doOnSubscribe(s -> queries.incrementAndGet());
+        }
+
+        private Mono<Alert> alert(Mono<Alert> creation) {
+            return creation.doOnNext(a -> alerts.incrementAndGet());
+        }
+
+        private void report() {
+            log.info("Stock level evaluation [{}] completed: queries={}, alerts={}, duration={}ms",
+                    mode, queries.get(), alerts.get(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+    }
+}
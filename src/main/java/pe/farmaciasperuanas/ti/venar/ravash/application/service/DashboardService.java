@@ -1,46 +1,110 @@
 package pe.farmaciasperuanas.ti.venar.ravash.application.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.DashboardChangesDTO;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.DashboardDTO;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductDTO;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockPredictionDTO;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.AlertSummary;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementRollup;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.WarehouseAlertCount;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.WarehouseProductStock;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DashboardService {
 
+    private static final int CRITICAL_PRODUCTS_LIMIT = 5;
+    private static final int TREND_DAYS = 7;
+
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
     private final AlertRepository alertRepository;
     private final ProductService productService;
     private final PredictionService predictionService;
+    private final OpenAlertCounters openAlertCounters;
+    private final InventoryService inventoryService;
+    private final ProductCache productCache;
+    private final InventoryValuation inventoryValuation;
+
+    @Value("${dashboard.cache.ttl-seconds:30}")
+    private long cacheTtlSeconds;
+
+    @Value("${dashboard.cache.refresh-ahead-seconds:10}")
+    private long cacheRefreshAheadSeconds;
+
+    @Value("${dashboard.cache.latency-budget-ms:2000}")
+    private long cacheLatencyBudgetMs;
+
+    private SnapshotCache<DashboardDTO> dashboardCache;
+    private SnapshotCache<Map<Long, DashboardDTO>> warehouseDashboardCache;
+    private volatile DashboardVersion dashboardVersion = new DashboardVersion(0, Map.of(), Map.of());
+    // Identifica este arranque: el contador de versiones vuelve a 0 al reiniciar y no es compartido entre réplicas
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+
+    @PostConstruct
+    public void initCache() {
+        dashboardCache = new SnapshotCache<>("dashboard", () -> computeDashboardData().map(this::applyVersion),
+                Duration.ofSeconds(cacheTtlSeconds),
+                Duration.ofSeconds(cacheRefreshAheadSeconds),
+                Duration.ofMillis(cacheLatencyBudgetMs));
+        warehouseDashboardCache = new SnapshotCache<>("warehouse dashboards", this::computeWarehouseDashboards,
+                Duration.ofSeconds(cacheTtlSeconds),
+                Duration.ofSeconds(cacheRefreshAheadSeconds),
+                Duration.ofMillis(cacheLatencyBudgetMs));
+    }
 
     public Mono<DashboardDTO> getDashboardData() {
+        return dashboardCache.get()
+                .map(snapshot -> withFreshness(snapshot.value(), snapshot));
+    }
+
+    private Mono<DashboardDTO> computeDashboardData() {
         log.info("Generating dashboard data...");
 
         return Mono.zip(
                 getGeneralMetrics(),
                 getAlertMetrics(),
                 getCriticalProducts(),
-                getPredictions()
+                getPredictions(),
+                inventoryService.getDailyRollups(TREND_DAYS).collectList()
         ).map(tuple -> {
             var metrics = tuple.getT1();
             var alerts = tuple.getT2();
             var critical = tuple.getT3();
             var predictions = tuple.getT4();
+            var movements = tuple.getT5();
 
             return DashboardDTO.builder()
                     .totalProducts(metrics.totalProducts)
@@ -53,48 +117,158 @@ public class DashboardService {
                     .lowStockProducts(critical.lowStock)
                     .overstockProducts(critical.overstock)
                     .expiringProducts(critical.expiring)
-                    .salesTrend(generateSalesTrend())
-                    .stockMovements(generateStockMovements())
+                    .salesTrend(inventoryService.toSalesTrend(movements, TREND_DAYS))
+                    .stockMovements(inventoryService.toMovementTotals(movements))
                     .urgentPredictions(predictions)
                     .build();
         });
     }
 
+    public static String etagOf(DashboardDTO dashboard) {
+        return "\"dashboard-" + dashboard.getEpoch() + "-" + dashboard.getVersion() + "\"";
+    }
+
+    /**
+     * Solo las secciones que cambiaron después de la versión indicada. Una versión de otro epoch
+     * (o sin epoch) no se puede comparar con la actual, así que se devuelven todas las secciones.
+     */
+    public Mono<DashboardChangesDTO> getDashboardChanges(long sinceVersion, String sinceEpoch) {
+        return getDashboardData()
+                .map(dashboard -> {
+                    DashboardVersion current = dashboardVersion;
+                    boolean comparable = epoch.equals(sinceEpoch) && sinceVersion >= 0
+                            && sinceVersion <= current.version();
+                    List<Section> changed = Arrays.stream(Section.values())
+                            .filter(section -> !comparable || current.sectionVersions().get(section) > sinceVersion)
+                            .toList();
+
+                    DashboardDTO.DashboardDTOBuilder changes = DashboardDTO.builder()
+                            .version(dashboard.getVersion())
+                            .epoch(dashboard.getEpoch())
+                            .generatedAt(dashboard.getGeneratedAt())
+                            .snapshotAgeSeconds(dashboard.getSnapshotAgeSeconds())
+                            .stale(dashboard.getStale());
+                    changed.forEach(section -> section.copy(dashboard, changes));
+
+                    return DashboardChangesDTO.builder()
+                            .since(sinceVersion)
+                            .version(dashboard.getVersion())
+                            .epoch(dashboard.getEpoch())
+                            .changedSections(changed.stream().map(Section::name).toList())
+                            .changes(changes.build())
+                            .build();
+                });
+    }
+
+    /**
+     * Asigna la versión al snapshot recién calculado: solo avanza si alguna sección cambió
+     */
+    private synchronized DashboardDTO applyVersion(DashboardDTO dashboard) {
+        DashboardVersion previous = dashboardVersion;
+        Map<Section, Object> values = new EnumMap<>(Section.class);
+        Map<Section, Long> sectionVersions = new EnumMap<>(Section.class);
+        long version = previous.version() + 1;
+        boolean changed = false;
+
+        for (Section section : Section.values()) {
+            Object value = section.valueOf(dashboard);
+            values.put(section, value);
+            if (Objects.equals(value, previous.sectionValues().get(section))
+                    && previous.sectionVersions().containsKey(section)) {
+                sectionVersions.put(section, previous.sectionVersions().get(section));
+            } else {
+                sectionVersions.put(section, version);
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            dashboardVersion = new DashboardVersion(version, sectionVersions, values);
+        }
+        dashboard.setVersion(dashboardVersion.version());
+        dashboard.setEpoch(epoch);
+        return dashboard;
+    }
+
+    /**
+     * Dashboard de un almacén. Los dashboards de todos los almacenes se calculan juntos
+     * a partir de agregados agrupados por almacén y se comparten en un mismo snapshot.
+     */
     public Mono<DashboardDTO> getDashboardByWarehouse(Long warehouseId) {
-        // Similar implementation but filtered by warehouse
-        return getDashboardData(); // Simplified for prototype
+        return warehouseDashboardCache.get()
+                .flatMap(snapshot -> Mono.justOrEmpty(snapshot.value().get(warehouseId))
+                        .map(dashboard -> withFreshness(dashboard, snapshot)))
+                .switchIfEmpty(Mono.error(new RuntimeException("Almacén no encontrado: " + warehouseId)));
+    }
+
+    private DashboardDTO withFreshness(DashboardDTO dashboard, SnapshotCache.Snapshot<?> snapshot) {
+        return dashboard.toBuilder()
+                .generatedAt(snapshot.generatedAt())
+                .snapshotAgeSeconds(snapshot.age().toSeconds())
+                .stale(snapshot.stale())
+                .build();
+    }
+
+    private Mono<Map<Long, DashboardDTO>> computeWarehouseDashboards() {
+        log.info("Generating warehouse dashboards...");
+        LocalDateTime now = LocalDateTime.now();
+
+        return Mono.zip(
+                inventoryRepository.findWarehouseProductStocks()
+                        .collect(() -> new HashMap<Long, WarehouseAggregate>(),
+                                (aggregates, row) -> aggregates
+                                        .computeIfAbsent(row.getWarehouseId(), id -> new WarehouseAggregate())
+                                        .add(row, now)),
+                alertRepository.countOpenByWarehouseAndSeverity()
+                        .collectList(),
+                alertRepository.findRecentAlerts(now.minusDays(1))
+                        .filter(alert -> alert.getWarehouseId() != null)
+                        .concatMap(alert -> toAlertSummary(alert)
+                                .map(summary -> Tuples.of(alert.getWarehouseId(), summary)))
+                        .collectMultimap(Tuple2::getT1, Tuple2::getT2),
+                // Las predicciones son por producto: se reutilizan las del dashboard global
+                getDashboardData().map(DashboardDTO::getUrgentPredictions),
+                inventoryService.getDailyRollupsByWarehouse(TREND_DAYS)
+        ).map(tuple -> {
+            Map<Long, DashboardDTO> dashboards = new HashMap<>();
+            tuple.getT1().forEach((warehouseId, aggregate) -> dashboards.put(warehouseId,
+                    aggregate.toDashboard(warehouseId, tuple.getT2(),
+                            tuple.getT3().getOrDefault(warehouseId, List.of()), tuple.getT4(),
+                            tuple.getT5().getOrDefault(warehouseId, List.of()))));
+            return dashboards;
+        });
     }
 
     private Mono<GeneralMetrics> getGeneralMetrics() {
         return Mono.zip(
                 productRepository.count(),
-                Mono.just(3L), // Hardcoded warehouses for prototype
-                inventoryRepository.calculateTotalInventoryValue()
-                        .defaultIfEmpty(0.0),
-                calculateAverageStockHealth()
+                inventoryRepository.countWarehouses(),
+                getTotalInventoryValue(),
+                productService.getAverageStockHealth()
         ).map(tuple -> new GeneralMetrics(
                 tuple.getT1().intValue(),
                 tuple.getT2().intValue(),
-                BigDecimal.valueOf(tuple.getT3()),
+                tuple.getT3(),
                 tuple.getT4()
         ));
     }
 
+    private Mono<BigDecimal> getTotalInventoryValue() {
+        if (inventoryValuation.isReady()) {
+            return Mono.just(inventoryValuation.getTotalValue());
+        }
+        return inventoryRepository.calculateTotalInventoryValue()
+                .map(BigDecimal::valueOf)
+                .defaultIfEmpty(BigDecimal.ZERO);
+    }
+
     private Mono<AlertMetrics> getAlertMetrics() {
         return Mono.zip(
-                alertRepository.countByResolvedFalseAndSeverity("HIGH")
-                        .defaultIfEmpty(0L),
-                alertRepository.countByResolvedFalseAndSeverity("MEDIUM")
-                        .defaultIfEmpty(0L),
+                countOpenAlerts("HIGH"),
+                countOpenAlerts("MEDIUM"),
                 alertRepository.findRecentAlerts(LocalDateTime.now().minusDays(1))
                         .take(5)
-                        .map(alert -> AlertSummary.builder()
-                                .id(alert.getId())
-                                .type(alert.getType())
-                                .severity(alert.getSeverity())
-                                .message(alert.getMessage())
-                                .createdAt(alert.getCreatedAt())
-                                .build())
+                        .concatMap(this::toAlertSummary)
                         .collectList()
         ).map(tuple -> new AlertMetrics(
                 tuple.getT1().intValue(),
@@ -103,14 +277,36 @@ public class DashboardService {
         ));
     }
 
+    // Nombre del producto leído desde la caché del maestro de productos
+    private Mono<AlertSummary> toAlertSummary(Alert alert) {
+        AlertSummary summary = AlertSummary.builder()
+                .id(alert.getId())
+                .type(alert.getType())
+                .severity(alert.getSeverity())
+                .message(alert.getMessage())
+                .createdAt(alert.getCreatedAt())
+                .build();
+
+        return Mono.justOrEmpty(alert.getProductId())
+                .flatMap(productCache::findById)
+                .doOnNext(product -> summary.setProductName(product.getName()))
+                .thenReturn(summary);
+    }
+
+    // Contadores en memoria; la base de datos solo se consulta antes de la carga inicial
+    private Mono<Long> countOpenAlerts(String severity) {
+        if (openAlertCounters.isReady()) {
+            return Mono.just(openAlertCounters.countBySeverity(severity));
+        }
+        return alertRepository.countByResolvedFalseAndSeverity(severity)
+                .defaultIfEmpty(0L);
+    }
+
     private Mono<CriticalProducts> getCriticalProducts() {
         return Mono.zip(
-                productService.getLowStockProducts().take(5).collectList(),
-                productService.getOverstockProducts().take(5).collectList(),
-                productRepository.findExpiringProducts()
-                        .flatMap(p -> productService.getProduct(p.getId()))
-                        .take(5)
-                        .collectList()
+                productService.getTopLowStockProducts(CRITICAL_PRODUCTS_LIMIT).collectList(),
+                productService.getTopOverstockProducts(CRITICAL_PRODUCTS_LIMIT).collectList(),
+                productService.getTopExpiringProducts(CRITICAL_PRODUCTS_LIMIT).collectList()
         ).map(tuple -> new CriticalProducts(
                 tuple.getT1(),
                 tuple.getT2(),
@@ -124,46 +320,53 @@ public class DashboardService {
                 .collectList();
     }
 
-    private Mono<Double> calculateAverageStockHealth() {
-        return productService.getAllProducts()
-                .map(ProductDTO::getStockHealth)
-                .filter(health -> health != null)
-                .collectList()
-                .map(healthList -> {
-                    if (healthList.isEmpty()) return 75.0;
-                    return healthList.stream()
-                            .mapToDouble(Double::doubleValue)
-                            .average()
-                            .orElse(75.0);
-                });
-    }
+    // Secciones versionadas del dashboard: valor comparable y copia hacia una respuesta parcial
+    private enum Section {
+        METRICS(d -> Arrays.asList(d.getTotalProducts(), d.getTotalWarehouses(),
+                d.getTotalInventoryValue(), d.getAverageStockHealth()),
+                (d, b) -> b.totalProducts(d.getTotalProducts())
+                        .totalWarehouses(d.getTotalWarehouses())
+                        .totalInventoryValue(d.getTotalInventoryValue())
+                        .averageStockHealth(d.getAverageStockHealth())),
+        ALERTS(d -> Arrays.asList(d.getCriticalAlerts(), d.getWarningAlerts(), d.getRecentAlerts()),
+                (d, b) -> b.criticalAlerts(d.getCriticalAlerts())
+                        .warningAlerts(d.getWarningAlerts())
+                        .recentAlerts(d.getRecentAlerts())),
+        CRITICAL_PRODUCTS(d -> Arrays.asList(d.getLowStockProducts(), d.getOverstockProducts(),
+                d.getExpiringProducts()),
+                (d, b) -> b.lowStockProducts(d.getLowStockProducts())
+                        .overstockProducts(d.getOverstockProducts())
+                        .expiringProducts(d.getExpiringProducts())),
+        TRENDS(d -> Arrays.asList(d.getSalesTrend(), d.getStockMovements()),
+                (d, b) -> b.salesTrend(d.getSalesTrend())
+                        .stockMovements(d.getStockMovements())),
+        PREDICTIONS(DashboardDTO::getUrgentPredictions,
+                (d, b) -> b.urgentPredictions(d.getUrgentPredictions()));
 
-    private Map<String, Double> generateSalesTrend() {
-        // Simulación de tendencia de ventas últimos 7 días
-        Map<String, Double> trend = new HashMap<>();
-        LocalDateTime now = LocalDateTime.now();
+        private final Function<DashboardDTO, Object> value;
+        private final BiConsumer<DashboardDTO, DashboardDTO.DashboardDTOBuilder> copier;
 
-        for (int i = 6; i >= 0; i--) {
-            String date = now.minusDays(i).toLocalDate().toString();
-            // Simular ventas con variación
-            double baseSales = 50000 + (Math.random() * 20000);
-            trend.put(date, baseSales);
+        Section(Function<DashboardDTO, Object> value,
+                BiConsumer<DashboardDTO, DashboardDTO.DashboardDTOBuilder> copier) {
+            this.value = value;
+            this.copier = copier;
         }
 
-        return trend;
-    }
-
-    private Map<String, Integer> generateStockMovements() {
-        // Simulación de movimientos de stock
-        Map<String, Integer> movements = new HashMap<>();
-        movements.put("entradas", 150 + (int)(Math.random() * 50));
-        movements.put("salidas", 120 + (int)(Math.random() * 80));
-        movements.put("ajustes", 5 + (int)(Math.random() * 10));
-        movements.put("devoluciones", (int)(Math.random() * 20));
+        private Object valueOf(DashboardDTO dashboard) {
+            return value.apply(dashboard);
+        }
 
-        return movements;
+        private void copy(DashboardDTO source, DashboardDTO.DashboardDTOBuilder target) {
+            copier.accept(source, target);
+        }
     }
 
+    private record DashboardVersion(
+            long version,
+            Map<Section, Long> sectionVersions,
+            Map<Section, Object> sectionValues
+    ) {}
+
     // Clases internas para agrupar datos
     private record GeneralMetrics(
             Integer totalProducts,
@@ -183,4 +386,92 @@ public class DashboardService {
             java.util.List<ProductDTO> overstock,
             java.util.List<ProductDTO> expiring
     ) {}
-}
\ No newline at end of file
+
+    // Acumulador de un almacén alimentado fila a fila desde la consulta agrupada
+    private final class WarehouseAggregate {
+
+        private BigDecimal totalValue = BigDecimal.ZERO;
+        private final DoubleSummaryStatistics health = new DoubleSummaryStatistics();
+        private final Set<Long> productIds = new HashSet<>();
+        private final List<WarehouseProductStock> lowStock = new ArrayList<>();
+        private final List<WarehouseProductStock> overstock = new ArrayList<>();
+        private final List<WarehouseProductStock> expiring = new ArrayList<>();
+
+        private void add(WarehouseProductStock row, LocalDateTime now) {
+            int stock = row.getTotalStock() != null ? row.getTotalStock() : 0;
+            productIds.add(row.getProductId());
+            if (row.getCostPrice() != null) {
+                totalValue = totalValue.add(row.getCostPrice().multiply(BigDecimal.valueOf(stock)));
+            }
+            health.accept(ProductService.calculateStockHealth(stock, row.getMinStock(), row.getMaxStock()));
+
+            if (row.getMinStock() != null && stock < row.getMinStock()) {
+                lowStock.add(row);
+            }
+            if (row.getMaxStock() != null && stock > row.getMaxStock()) {
+                overstock.add(row);
+            }
+            if (Boolean.TRUE.equals(row.getPerishable()) && row.getNextExpiration() != null
+                    && !row.getNextExpiration().toLocalDate().isAfter(now.toLocalDate().plusDays(7))) {
+                expiring.add(row);
+            }
+        }
+
+        private DashboardDTO toDashboard(Long warehouseId, List<WarehouseAlertCount> alertCounts,
+                                         Collection<AlertSummary> recentAlerts,
+                                         List<StockPredictionDTO> predictions,
+                                         Collection<MovementRollup> movements) {
+            return DashboardDTO.builder()
+                    .totalProducts(productIds.size())
+                    .totalWarehouses(1)
+                    .totalInventoryValue(totalValue)
+                    .averageStockHealth(health.getCount() == 0 ? 75.0 : health.getAverage())
+                    .criticalAlerts(countAlerts(alertCounts, warehouseId, "HIGH"))
+                    .warningAlerts(countAlerts(alertCounts, warehouseId, "MEDIUM"))
+                    .recentAlerts(recentAlerts.stream().limit(CRITICAL_PRODUCTS_LIMIT).toList())
+                    .lowStockProducts(top(lowStock, Comparator.comparingDouble(
+                            row -> (double) row.getTotalStock() / Math.max(1, row.getMinStock()))))
+                    .overstockProducts(top(overstock, Comparator.comparingDouble(
+                            row -> -(double) row.getTotalStock() / Math.max(1, row.getMaxStock()))))
+                    .expiringProducts(top(expiring, Comparator.comparing(WarehouseProductStock::getNextExpiration)))
+                    .salesTrend(inventoryService.toSalesTrend(movements, TREND_DAYS))
+                    .stockMovements(inventoryService.toMovementTotals(movements))
+                    .urgentPredictions(predictions == null ? List.of() : predictions.stream()
+                            .filter(prediction -> productIds.contains(prediction.getProductId()))
+                            .toList())
+                    .build();
+        }
+
+        private int countAlerts(List<WarehouseAlertCount> alertCounts, Long warehouseId, String severity) {
+            return alertCounts.stream()
+                    .filter(count -> warehouseId.equals(count.getWarehouseId()) && severity.equals(count.getSeverity()))
+                    .mapToInt(count -> count.getTotal().intValue())
+                    .sum();
+        }
+
+        private List<ProductDTO> top(List<WarehouseProductStock> rows, Comparator<WarehouseProductStock> severity) {
+            return rows.stream()
+                    .sorted(severity)
+                    .limit(CRITICAL_PRODUCTS_LIMIT)
+                    .map(this::toProductDTO)
+                    .toList();
+        }
+
+        private ProductDTO toProductDTO(WarehouseProductStock row) {
+            int stock = row.getTotalStock() != null ? row.getTotalStock() : 0;
+            return ProductDTO.builder()
+                    .id(row.getProductId())
+                    .sku(row.getSku())
+                    .name(row.getName())
+                    .category(row.getCategory())
+                    .brand(row.getBrand())
+                    .costPrice(row.getCostPrice())
+                    .salePrice(row.getSalePrice())
+                    .minStock(row.getMinStock())
+                    .currentStock(stock)
+                    .stockHealth(ProductService.calculateStockHealth(stock, row.getMinStock(), row.getMaxStock()))
+                    .stockStatus(ProductService.determineStockStatus(stock, row.getMinStock(), row.getMaxStock()))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryDrift;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryLedgerRepositoryCustom;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Libro de eventos de inventario (stock_movements) con current_stock como proyección.
+ * Las instantáneas por (producto, almacén) se acumulan de forma incremental, sumando solo los
+ * eventos desde la corrida anterior, de modo que reconstruir la proyección lee la instantánea
+ * más la cola de eventos posteriores y no el libro completo.
+ * <p>
+ * La reconstrucción programada o sin forzar solo informa las claves que difieren del libro; la
+ * corrección de current_stock se pide explícitamente.
+ */
+@Service
+@Slf4j
+public class InventoryLedgerService {
+
+    private final InventoryLedgerRepositoryCustom inventoryLedgerRepositoryCustom;
+    private final InventoryValuation inventoryValuation;
+    private final Duration settleLag;
+    private final int driftLimit;
+
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final AtomicReference<SnapshotRun> lastRun = new AtomicReference<>();
+    private final AtomicReference<RebuildRun> lastRebuild = new AtomicReference<>();
+    // Mayor id visto en la corrida anterior: se acumula hasta él cuando ya pasó settle-lag
+    private final AtomicReference<SnapshotBound> pendingBound = new AtomicReference<>();
+
+    public InventoryLedgerService(InventoryLedgerRepositoryCustom inventoryLedgerRepositoryCustom,
+                                  InventoryValuation inventoryValuation,
+                                  @Value("${inventory.ledger.settle-lag-seconds:60}") long settleLagSeconds,
+                                  @Value("${inventory.ledger.drift-limit:500}") int driftLimit) {
+        this.inventoryLedgerRepositoryCustom = inventoryLedgerRepositoryCustom;
+        this.inventoryValuation = inventoryValuation;
+        this.settleLag = Duration.ofSeconds(settleLagSeconds);
+        this.driftLimit = driftLimit;
+    }
+
+    @Scheduled(cron = "${inventory.ledger.snapshot-cron:0 */15 * * * *}")
+    public void runSnapshot() {
+        if (!snapshotting.compareAndSet(false, true)) {
+            log.warn("Inventory snapshot already running, skipping");
+            return;
+        }
+        takeSnapshot()
+                .doFinally(signal -> snapshotting.set(false))
+                .subscribe(
+                        run -> log.info("Inventory snapshot taken: movements ({}, {}] in {}ms",
+                                run.fromMovementId(), run.toMovementId(), run.durationMillis()),
+                        error -> log.error("Error taking inventory snapshot", error)
+                );
+    }
+
+    /**
+     * Acumula en las instantáneas los eventos desde la última corrida hasta el MAX(id) confirmado
+     * que se leyó hace al menos {@code settle-lag}: los ids menores ya estaban asignados entonces,
+     * así que sus transacciones terminaron y ninguno queda atrás sin sumar. No depende del reloj
+     * de la aplicación (created_at). Cada corrida deja el MAX(id) actual como límite de la
+     * siguiente. Vacío si aún no hay límite asentado o no hay eventos nuevos.
+     */
+    public Mono<SnapshotRun> takeSnapshot() {
+        long startedAt = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+
+        return inventoryLedgerRepositoryCustom.findMaxMovementId()
+                .flatMap(maxId -> Mono.justOrEmpty(settledBound(new SnapshotBound(maxId, startedAt))))
+                .flatMap(bound -> Mono.zip(inventoryLedgerRepositoryCustom.findSnapshotWatermark(),
+                        Mono.just(bound.movementId())))
+                .filter(range -> range.getT2() > range.getT1())
+                .flatMap(range -> inventoryLedgerRepositoryCustom
+                        .accumulateSnapshots(range.getT1(), range.getT2(), now)
+                        .map(rows -> new SnapshotRun(range.getT1(), range.getT2(), now,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt))))
+                .doOnNext(lastRun::set);
+    }
+
+    /**
+     * Recalcula current_stock desde instantánea + cola. Sin {@code force} solo cuenta las claves
+     * que difieren (hasta {@code drift-limit}) y no escribe nada; con {@code force} las corrige,
+     * omitiendo las que tienen movimientos recientes, que quedan para la siguiente pasada.
+     * Cada corrida registra cuántos eventos tenía la cola y cuánto tardó, para vigilar que la
+     * reconstrucción siga en segundos a medida que crece el libro.
+     */
+    public Mono<RebuildRun> rebuildProjection(boolean force) {
+        long startedAt = System.nanoTime();
+        return inventoryLedgerRepositoryCustom.findSnapshotWatermark()
+                .flatMap(watermark -> Mono.zip(
+                        inventoryLedgerRepositoryCustom.countMovementsAfter(watermark),
+                        inventoryLedgerRepositoryCustom.findDrift(watermark, driftLimit).count(),
+                        force
+                                ? inventoryLedgerRepositoryCustom.rebuildProjection(watermark,
+                                        LocalDateTime.now().minus(settleLag))
+                                : Mono.just(0L))
+                        .map(result -> new RebuildRun(watermark, result.getT1(), result.getT2(), result.getT3(),
+                                force, LocalDateTime.now(),
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt))))
+                .doOnNext(run -> {
+                    lastRebuild.set(run);
+                    if (!force) {
+                        if (run.driftedKeys() > 0) {
+                            log.warn("Inventory projection differs from ledger in {} keys (report only, not corrected)",
+                                    run.driftedKeys());
+                        }
+                        return;
+                    }
+                    log.info("Inventory projection rebuilt: {} tail events after movement {}, {} rows corrected in {}ms",
+                            run.tailEvents(), run.watermark(), run.rowsCorrected(), run.durationMillis());
+                    if (run.rowsCorrected() > 0) {
+                        inventoryValuation.reconcile();
+                    }
+                });
+    }
+
+    // Devuelve el límite anterior si ya está asentado y deja el actual para la próxima corrida
+    private SnapshotBound settledBound(SnapshotBound current) {
+        while (true) {
+            SnapshotBound previous = pendingBound.get();
+            if (previous != null && current.observedAtNanos() - previous.observedAtNanos() < settleLag.toNanos()) {
+                return null;
+            }
+            if (pendingBound.compareAndSet(previous, current)) {
+                return previous;
+            }
+        }
+    }
+
+    /**
+     * Claves cuyo current_stock no coincide con el libro (solo lectura)
+     */
+    public Flux<InventoryDrift> findDrift() {
+        return inventoryLedgerRepositoryCustom.findSnapshotWatermark()
+                .flatMapMany(watermark -> inventoryLedgerRepositoryCustom.findDrift(watermark, driftLimit));
+    }
+
+    public Mono<Long> getStockAsOf(Long productId, Long warehouseId, LocalDateTime asOf) {
+        return inventoryLedgerRepositoryCustom.findStockAsOf(productId, warehouseId,
+                asOf != null ? asOf : LocalDateTime.now());
+    }
+
+    public Mono<SnapshotRun> getLastSnapshotRun() {
+        return Mono.justOrEmpty(lastRun.get());
+    }
+
+    public Mono<RebuildRun> getLastRebuildRun() {
+        return Mono.justOrEmpty(lastRebuild.get());
+    }
+
+    public record SnapshotRun(
+            long fromMovementId,
+            long toMovementId,
+            LocalDateTime takenAt,
+            long durationMillis
+    ) {}
+
+    public record RebuildRun(
+            long watermark,
+            long tailEvents,
+            long driftedKeys,
+            long rowsCorrected,
+            boolean forced,
+            LocalDateTime rebuiltAt,
+            long durationMillis
+    ) {}
+
+    private record SnapshotBound(long movementId, long observedAtNanos) {}
+}
@@ -0,0 +1,186 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.InventoryDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockMovementDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Inventory;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementRollup;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.StockMovementRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private final InventoryRepository inventoryRepository;
+    private final StockMovementIngestor stockMovementIngestor;
+    private final StockMovementRepository stockMovementRepository;
+    private final StockAvailabilityGate stockAvailabilityGate;
+
+    public Mono<InventoryDTO> registerMovement(StockMovementDTO movement) {
+        if (movement.getQuantity() == 0) {
+            return Mono.error(new RuntimeException("La cantidad del movimiento no puede ser cero"));
+        }
+        if (movement.getType() == MovementType.TRANSFERENCIA) {
+            return registerTransfer(movement);
+        }
+        int delta = movement.getType().signedDelta(movement.getQuantity());
+        log.info("Registering {} of {} units for product {} in warehouse {}", movement.getType(),
+                delta, movement.getProductId(), movement.getWarehouseId());
+
+        StockDelta stockDelta = toDelta(movement, movement.getWarehouseId(), delta);
+        return findInventory(movement.getProductId(), movement.getWarehouseId())
+                .flatMap(inventory -> submit(delta < 0 ? stockDelta : null, List.of(stockDelta)))
+                .then(inventoryRepository.findByProductIdAndWarehouseId(movement.getProductId(),
+                        movement.getWarehouseId()))
+                .map(this::toDTO);
+    }
+
+    // Salida del almacén de origen y entrada en el de destino, en la misma transacción
+    private Mono<InventoryDTO> registerTransfer(StockMovementDTO movement) {
+        Long targetWarehouseId = movement.getTargetWarehouseId();
+        if (targetWarehouseId == null || targetWarehouseId.equals(movement.getWarehouseId())) {
+            return Mono.error(new RuntimeException("La transferencia requiere un almacén de destino distinto al de origen"));
+        }
+        int quantity = Math.abs(movement.getQuantity());
+        log.info("Registering transfer of {} units for product {} from warehouse {} to {}", quantity,
+                movement.getProductId(), movement.getWarehouseId(), targetWarehouseId);
+
+        StockDelta outgoing = toDelta(movement, movement.getWarehouseId(), -quantity);
+        return findInventory(movement.getProductId(), movement.getWarehouseId())
+                .then(findInventory(movement.getProductId(), targetWarehouseId))
+                .flatMap(target -> submit(outgoing, List.of(outgoing,
+                        toDelta(movement, targetWarehouseId, quantity))))
+                .then(inventoryRepository.findByProductIdAndWarehouseId(movement.getProductId(),
+                        movement.getWarehouseId()))
+                .map(this::toDTO);
+    }
+
+    /**
+     * La salida (si hay) se descuenta primero del disponible en memoria, como una reserva, y la
+     * base de datos la confirma contra current_stock - reserved_stock en la fila bloqueada. Si
+     * alguno de los dos la rechaza, el movimiento completo se rechaza al llamador.
+     */
+    private Mono<Void> submit(StockDelta outgoing, List<StockDelta> deltas) {
+        if (outgoing == null) {
+            return stockMovementIngestor.submitAll(deltas);
+        }
+        Long productId = outgoing.getProductId();
+        Long warehouseId = outgoing.getWarehouseId();
+        int quantity = -outgoing.availableChange();
+
+        return stockAvailabilityGate.tryAcquire(productId, warehouseId, quantity)
+                .flatMap(acquired -> {
+                    if (!acquired) {
+                        return insufficientStock(productId, warehouseId);
+                    }
+                    // Si el llamador cancela, el movimiento ya encolado igual se aplica: no se devuelve nada
+                    return stockMovementIngestor.submitAll(deltas)
+                            .doOnError(error -> {
+                                if (error instanceof StockMovementIngestor.RejectedMovementException) {
+                                    // El disponible en memoria estaba desfasado: se descarta y se recarga
+                                    stockAvailabilityGate.invalidate(productId, warehouseId);
+                                } else {
+                                    stockAvailabilityGate.adjust(productId, warehouseId, quantity);
+                                }
+                            });
+                });
+    }
+
+    private <T> Mono<T> insufficientStock(Long productId, Long warehouseId) {
+        return Mono.error(new RuntimeException("Stock insuficiente para el movimiento del producto "
+                + productId + " en almacén " + warehouseId));
+    }
+
+    private Mono<Inventory> findInventory(Long productId, Long warehouseId) {
+        return inventoryRepository.findByProductIdAndWarehouseId(productId, warehouseId)
+                .switchIfEmpty(Mono.error(new RuntimeException("Inventario no encontrado para producto "
+                        + productId + " en almacén " + warehouseId)));
+    }
+
+    private StockDelta toDelta(StockMovementDTO movement, Long warehouseId, int delta) {
+        return StockDelta.builder()
+                .productId(movement.getProductId())
+                .warehouseId(warehouseId)
+                .quantity(delta)
+                .movementType(movement.getType())
+                .reference(movement.getReference())
+                .build();
+    }
+
+    /**
+     * Buckets diarios de todos los almacenes de los últimos N días (incluido hoy)
+     */
+    public Flux<MovementRollup> getDailyRollups(int days) {
+        LocalDate today = LocalDate.now();
+        return stockMovementRepository.findDailyRollups(today.minusDays(days - 1L), today);
+    }
+
+    /**
+     * Buckets diarios de los últimos N días agrupados por almacén, leídos en una sola consulta
+     */
+    public Mono<Map<Long, Collection<MovementRollup>>> getDailyRollupsByWarehouse(int days) {
+        LocalDate today = LocalDate.now();
+        return stockMovementRepository.findDailyRollupsPerWarehouse(today.minusDays(days - 1L), today)
+                .collectMultimap(MovementRollup::getWarehouseId);
+    }
+
+    /**
+     * Monto vendido (salidas) por día, con todos los días del rango aunque no tengan movimientos
+     */
+    public Map<String, Double> toSalesTrend(Collection<MovementRollup> rollups, int days) {
+        Map<String, Double> trend = new LinkedHashMap<>();
+        LocalDate today = LocalDate.now();
+        for (int i = days - 1; i >= 0; i--) {
+            trend.put(today.minusDays(i).toString(), 0.0);
+        }
+
+        rollups.stream()
+                .filter(rollup -> MovementType.SALIDA.name().equals(rollup.getMovementType()))
+                .forEach(rollup -> trend.computeIfPresent(rollup.getBucketStart().toLocalDate().toString(),
+                        (date, amount) -> amount + rollup.getAmount().doubleValue()));
+        return trend;
+    }
+
+    /**
+     * Unidades movidas por tipo (entradas, salidas, ajustes, devoluciones)
+     */
+    public Map<String, Integer> toMovementTotals(Collection<MovementRollup> rollups) {
+        Map<String, Integer> totals = new LinkedHashMap<>();
+        for (MovementType type : MovementType.values()) {
+            totals.put(type.getLabel(), 0);
+        }
+
+        rollups.forEach(rollup -> {
+            MovementType type = MovementType.valueOf(rollup.getMovementType());
+            totals.merge(type.getLabel(), rollup.getUnits().intValue(), Integer::sum);
+        });
+        return totals;
+    }
+
+    private InventoryDTO toDTO(Inventory inventory) {
+        return InventoryDTO.builder()
+                .productId(inventory.getProductId())
+                .warehouseId(inventory.getWarehouseId())
+                .warehouseName(inventory.getWarehouseName())
+                .currentStock(inventory.getCurrentStock())
+                .availableStock(inventory.getAvailableStock())
+                .reservedStock(inventory.getReservedStock())
+                .expirationDate(inventory.getExpirationDate())
+                .stockTurnover(inventory.getStockTurnover())
+                .build();
+    }
+}
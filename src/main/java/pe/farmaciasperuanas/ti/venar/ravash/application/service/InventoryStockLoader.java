@@ -0,0 +1,78 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockTotal;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Cargador por lotes del stock total de productos: agrupa los ids pedidos durante una ventana
+ * corta o hasta N ids (MicroBatcher) y resuelve todos con una sola consulta
+ * {@code WHERE product_id IN (...)}, con hasta {@code concurrency} consultas a la vez.
+ */
+@Component
+@Slf4j
+public class InventoryStockLoader {
+
+    private final InventoryRepository inventoryRepository;
+    private final MicroBatcher<Long, Integer> batcher;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public InventoryStockLoader(InventoryRepository inventoryRepository,
+                                @Value("${inventory.stock-loader.max-batch-size:100}") int maxBatchSize,
+                                @Value("${inventory.stock-loader.window-ms:5}") long windowMs,
+                                @Value("${inventory.stock-loader.concurrency:4}") int concurrency) {
+        this.inventoryRepository = inventoryRepository;
+        this.batcher = new MicroBatcher<>("inventory stock loader", maxBatchSize, Duration.ofMillis(windowMs),
+                concurrency, Integer.MAX_VALUE, this::load);
+    }
+
+    @PostConstruct
+    public void start() {
+        batcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        batcher.stop();
+    }
+
+    /**
+     * Stock total (suma de almacenes) del producto; 0 si no tiene inventario
+     */
+    public Mono<Integer> load(Long productId) {
+        return batcher.submit(productId);
+    }
+
+    public double getAverageBatchSize() {
+        long count = batches.get();
+        return count == 0 ? 0 : (double) loads.get() / count;
+    }
+
+    private Mono<Void> load(List<MicroBatcher.Request<Long, Integer>> batch) {
+        Set<Long> productIds = batch.stream()
+                .map(MicroBatcher.Request::item)
+                .collect(Collectors.toSet());
+
+        return inventoryRepository.sumStockByProductIds(productIds)
+                .collectMap(ProductStockTotal::getProductId, ProductStockTotal::getTotalStock)
+                .doOnNext(totals -> {
+                    batches.incrementAndGet();
+                    loads.addAndGet(batch.size());
+                    batch.forEach(request -> request.complete(totals.getOrDefault(request.item(), 0)));
+                })
+                .then();
+    }
+}
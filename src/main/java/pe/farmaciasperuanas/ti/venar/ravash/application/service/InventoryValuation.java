@@ -0,0 +1,191 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AppliedMovements;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryValuationRow;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Valor del inventario a costo (total, por almacén y por categoría) mantenido en memoria en
+ * céntimos enteros, sin errores de redondeo acumulados. Se carga al iniciar, se ajusta con cada
+ * movimiento de stock confirmado y con cada cambio de costo o categoría de un producto, y se
+ * reconcilia periódicamente contra la base de datos para corregir desvíos. Cada ajuste lleva la
+ * hora de la base de datos en que se hizo su cambio y la consulta de reconciliación la hora en que
+ * leyó: al reemplazar los totales solo se reaplican los ajustes posteriores a esa lectura.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryValuation {
+
+    private final InventoryRepository inventoryRepository;
+
+    private final ReconciledState<Totals, Adjustment> totals =
+            new ReconciledState<>("inventory valuation", InventoryValuation::apply);
+
+    public boolean isReady() {
+        return totals.get() != null;
+    }
+
+    public BigDecimal getTotalValue() {
+        Totals current = totals.get();
+        return current != null ? toAmount(current.total().sum()) : BigDecimal.ZERO.setScale(2);
+    }
+
+    public BigDecimal getWarehouseValue(Long warehouseId) {
+        Totals current = totals.get();
+        LongAdder value = current != null ? current.byWarehouse().get(warehouseId) : null;
+        return toAmount(value != null ? value.sum() : 0L);
+    }
+
+    public Valuation getValuation() {
+        Totals current = totals.get();
+        if (current == null) {
+            return new Valuation(BigDecimal.ZERO.setScale(2), Map.of(), Map.of(), null);
+        }
+        Map<Long, BigDecimal> byWarehouse = new TreeMap<>();
+        current.byWarehouse().forEach((warehouseId, value) -> byWarehouse.put(warehouseId, toAmount(value.sum())));
+        Map<String, BigDecimal> byCategory = new TreeMap<>();
+        current.byCategory().forEach((category, value) -> byCategory.put(category, toAmount(value.sum())));
+        return new Valuation(toAmount(current.total().sum()), byWarehouse, byCategory, current.reconciledAt());
+    }
+
+    /**
+     * Ajusta los totales con movimientos ya confirmados en base de datos, al costo y la categoría que
+     * la transacción que los aplicó vio para cada producto
+     */
+    public void onStockDeltas(List<StockDelta> deltas, AppliedMovements movements) {
+        if (!totals.isTracking()) {
+            return; // aún no cargado: la carga inicial ya incluirá estos movimientos
+        }
+        for (StockDelta delta : deltas) {
+            add(delta.getWarehouseId(), movements.getCategories().get(delta.getProductId()),
+                    (long) delta.getQuantity() * toCents(movements.getCostPrices().get(delta.getProductId())),
+                    movements.getAppliedAt());
+        }
+    }
+
+    /**
+     * Revalúa el stock del producto en cada almacén al cambiar su costo o su categoría, ya guardado
+     */
+    public Mono<Void> onProductChanged(Long productId, BigDecimal oldCost, String oldCategory,
+                                       BigDecimal newCost, String newCategory) {
+        long oldCents = toCents(oldCost);
+        long newCents = toCents(newCost);
+        if (!totals.isTracking() || (oldCents == newCents && key(oldCategory).equals(key(newCategory)))) {
+            return Mono.empty();
+        }
+        return inventoryRepository.sumStockByWarehouse(productId)
+                .doOnNext(stock -> {
+                    long units = stock.getStock() != null ? stock.getStock() : 0L;
+                    add(stock.getWarehouseId(), oldCategory, -units * oldCents, stock.getReadAt());
+                    add(stock.getWarehouseId(), newCategory, units * newCents, stock.getReadAt());
+                })
+                .then()
+                .onErrorResume(error -> {
+                    log.error("Error revaluing product {} in inventory valuation", productId, error);
+                    return Mono.empty();
+                });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.valuation.reconcile-interval-ms:900000}",
+            initialDelayString = "${inventory.valuation.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        totals.reconcile(() -> inventoryRepository.sumValuationByWarehouseAndCategory()
+                .collectList()
+                .map(InventoryValuation::snapshot), InventoryValuation::logReplaced);
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0L;
+    }
+
+    private static ReconciledState.Snapshot<Totals, Adjustment> snapshot(List<InventoryValuationRow> rows) {
+        Totals fresh = new Totals(new LongAdder(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(),
+                LocalDateTime.now(), rows.size());
+        LocalDateTime takenAt = null;
+        for (InventoryValuationRow row : rows) {
+            long cents = row.getValueCents() != null ? row.getValueCents() : 0L;
+            apply(fresh, new Adjustment(row.getWarehouseId(), key(row.getCategory()), cents, null));
+            takenAt = row.getTakenAt();
+        }
+        LocalDateTime readAt = takenAt;
+        return new ReconciledState.Snapshot<>(fresh, adjustment -> adjustment.includedIn(readAt));
+    }
+
+    private static void logReplaced(Totals previous, Totals fresh, int replayed) {
+        long freshTotal = fresh.total().sum();
+        if (previous != null) {
+            long previousTotal = previous.total().sum();
+            log.info("Inventory valuation reconciled: total {} -> {} (drift {}, {} adjustments replayed)",
+                    toAmount(previousTotal), toAmount(freshTotal), toAmount(freshTotal - previousTotal), replayed);
+        } else {
+            log.info("Inventory valuation loaded: total {}, {} warehouse/category groups ({} adjustments replayed)",
+                    toAmount(freshTotal), fresh.groups(), replayed);
+        }
+    }
+
+    private void add(Long warehouseId, String category, long cents, LocalDateTime changedAt) {
+        if (cents != 0) {
+            totals.record(new Adjustment(warehouseId, key(category), cents, changedAt));
+        }
+    }
+
+    private static void apply(Totals target, Adjustment adjustment) {
+        target.total().add(adjustment.cents());
+        target.byWarehouse().computeIfAbsent(adjustment.warehouseId(), k -> new LongAdder()).add(adjustment.cents());
+        target.byCategory().computeIfAbsent(adjustment.category(), k -> new LongAdder()).add(adjustment.cents());
+    }
+
+    private static BigDecimal toAmount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static String key(String value) {
+        return value != null ? value : "-";
+    }
+
+    private record Totals(
+            LongAdder total,
+            Map<Long, LongAdder> byWarehouse,
+            Map<String, LongAdder> byCategory,
+            LocalDateTime reconciledAt,
+            int groups
+    ) {}
+
+    private record Adjustment(Long warehouseId, String category, long cents, LocalDateTime changedAt) {
+
+        // Sin hora no se puede saber: se reaplica y la próxima reconciliación corrige
+        boolean includedIn(LocalDateTime takenAt) {
+            return changedAt != null && takenAt != null && changedAt.isBefore(takenAt);
+        }
+    }
+
+    public record Valuation(
+            BigDecimal totalValue,
+            Map<Long, BigDecimal> byWarehouse,
+            Map<String, BigDecimal> byCategory,
+            LocalDateTime reconciledAt
+    ) {}
+}
@@ -0,0 +1,218 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Micro-lotes: agrupa los pedidos recibidos durante una ventana corta (o hasta N) y entrega cada
+ * lote a un procesador, que resuelve cada pedido con su resultado, vacío o error.
+ * <p>
+ * La ventana solo emite un lote cuando hay un procesador libre para tomarlo, así que un lote lento
+ * frena el agrupado en lugar de desbordarlo. Los pedidos que el procesador deja sin resolver fallan
+ * al terminar su lote, y si el flujo termina todos los pendientes fallan (no quedan colgados) y el
+ * agrupador se reinicia. Con {@code capacity} acotada, los pedidos que no caben se rechazan con
+ * {@link QueueFullException}.
+ */
+@Slf4j
+public class MicroBatcher<T, R> {
+
+    private final String name;
+    private final int maxBatchSize;
+    private final Duration window;
+    private final int concurrency;
+    private final int capacity;
+    private final Function<List<Request<T, R>>, Mono<Void>> processor;
+
+    private final Set<Request<T, R>> outstanding = ConcurrentHashMap.newKeySet();
+    private volatile Sinks.Many<Request<T, R>> pending;
+    private volatile Disposable subscription;
+    private volatile boolean stopped;
+
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    public MicroBatcher(String name, int maxBatchSize, Duration window, int concurrency, int capacity,
+                        Function<List<Request<T, R>>, Mono<Void>> processor) {
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.window = window;
+        this.concurrency = concurrency;
+        this.capacity = capacity;
+        this.processor = processor;
+    }
+
+    public void start() {
+        Sinks.Many<Request<T, R>> sink = Sinks.many().unicast().onBackpressureBuffer();
+        pending = sink;
+        subscription = sink.asFlux()
+                .bufferTimeout(maxBatchSize, window, true)
+                .flatMap(this::process, concurrency)
+                .subscribe(null, this::onTerminated, () -> onTerminated(null));
+    }
+
+    public void stop() {
+        stopped = true;
+        pending.tryEmitComplete();
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Encola el pedido; emite lo que resuelva el procesador para él cuando su lote termine
+     */
+    public Mono<R> submit(T item) {
+        return Mono.defer(() -> {
+            if (!reserveSlot()) {
+                return Mono.error(new QueueFullException());
+            }
+            submitted.incrementAndGet();
+            Request<T, R> request = new Request<>(this, item);
+            outstanding.add(request);
+            if (!emit(pending, request)) {
+                request.fail(stoppedError());
+            }
+            return request.result.asMono();
+        });
+    }
+
+    public int getPending() {
+        return depth.get();
+    }
+
+    public int getMaxPending() {
+        return maxDepth.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getRestarts() {
+        return restarts.get();
+    }
+
+    private Mono<Void> process(List<Request<T, R>> batch) {
+        return Mono.defer(() -> processor.apply(batch))
+                .onErrorResume(error -> {
+                    log.error("Error processing batch of {} in {}", batch.size(), name, error);
+                    batch.forEach(request -> request.fail(error));
+                    return Mono.empty();
+                })
+                .doFinally(signal -> failUnresolved(batch));
+    }
+
+    private void failUnresolved(List<Request<T, R>> batch) {
+        List<Request<T, R>> unresolved = batch.stream().filter(outstanding::contains).toList();
+        if (!unresolved.isEmpty()) {
+            IllegalStateException error = new IllegalStateException("Pedido sin resultado en " + name);
+            unresolved.forEach(request -> request.fail(error));
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current = depth.incrementAndGet();
+        if (current > capacity) {
+            depth.decrementAndGet();
+            return false;
+        }
+        maxDepth.accumulateAndGet(current, Math::max);
+        return true;
+    }
+
+    // Resuelve el pedido una sola vez, lo haga el procesador, el fin del lote o la terminación
+    private boolean release(Request<T, R> request) {
+        if (outstanding.remove(request)) {
+            depth.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    // El flujo terminó (error inesperado o apagado): nada de lo encolado se va a procesar
+    private void onTerminated(Throwable error) {
+        Throwable cause = error != null ? error : stoppedError();
+        List.copyOf(outstanding).forEach(request -> request.fail(cause));
+        if (error != null && !stopped) {
+            restarts.incrementAndGet();
+            log.error("{} stopped, restarting", name, error);
+            start();
+        }
+    }
+
+    private IllegalStateException stoppedError() {
+        return new IllegalStateException("Procesamiento por lotes detenido: " + name);
+    }
+
+    private static <T> boolean emit(Sinks.Many<T> sink, T request) {
+        Sinks.EmitResult result = sink.tryEmitNext(request);
+        while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+            result = sink.tryEmitNext(request);
+        }
+        return result.isSuccess();
+    }
+
+    /**
+     * Pedido encolado; el procesador lo resuelve con {@link #complete} o {@link #fail}
+     */
+    public static final class Request<T, R> {
+
+        private final MicroBatcher<T, R> owner;
+        private final T item;
+        private final Sinks.One<R> result = Sinks.one();
+
+        private Request(MicroBatcher<T, R> owner, T item) {
+            this.owner = owner;
+            this.item = item;
+        }
+
+        public T item() {
+            return item;
+        }
+
+        /**
+         * Emite el valor, o vacío si es null
+         */
+        public void complete(R value) {
+            if (owner.release(this)) {
+                if (value != null) {
+                    result.tryEmitValue(value);
+                } else {
+                    result.tryEmitEmpty();
+                }
+            }
+        }
+
+        public void fail(Throwable error) {
+            if (owner.release(this)) {
+                result.tryEmitError(error);
+            }
+        }
+    }
+
+    public static final class QueueFullException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private QueueFullException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertCount;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores en memoria de alertas abiertas por severidad y por tipo.
+ * Se cargan desde la base de datos al iniciar, se actualizan al crear/resolver alertas
+ * y se reconcilian periódicamente para corregir desvíos. La consulta de reconciliación devuelve
+ * el mayor id de alerta y la hora de la base de datos: al reemplazar los contadores solo se
+ * reaplican las altas con id mayor y las resoluciones posteriores a esa hora.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OpenAlertCounters {
+
+    private final AlertRepository alertRepository;
+
+    private final ReconciledState<Counts, Change> counts =
+            new ReconciledState<>("open alert counters", OpenAlertCounters::apply);
+
+    public boolean isReady() {
+        return counts.get() != null;
+    }
+
+    public long countBySeverity(String severity) {
+        Counts current = counts.get();
+        return current != null ? sum(current.bySeverity(), severity) : 0L;
+    }
+
+    public long countByType(String type) {
+        Counts current = counts.get();
+        return current != null ? sum(current.byType(), type) : 0L;
+    }
+
+    public void onCreated(Alert alert) {
+        counts.record(new Change(key(alert.getSeverity()), key(alert.getType()), 1, alert.getId(), null));
+    }
+
+    /**
+     * Recibe la alerta leída después de resolverla, con el resolved_at que le puso la base de datos
+     */
+    public void onResolved(Alert alert) {
+        counts.record(new Change(key(alert.getSeverity()), key(alert.getType()), -1, null, alert.getResolvedAt()));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        reconcile();
+    }
+
+    @Scheduled(fixedDelayString = "${alerts.counters.reconcile-interval-ms:600000}",
+            initialDelayString = "${alerts.counters.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        counts.reconcile(() -> alertRepository.countOpenBySeverityAndType()
+                .collectList()
+                .map(OpenAlertCounters::snapshot), this::logReplaced);
+    }
+
+    private static ReconciledState.Snapshot<Counts, Change> snapshot(List<AlertCount> rows) {
+        Counts fresh = new Counts(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        long maxId = 0L;
+        LocalDateTime takenAt = null;
+        for (AlertCount row : rows) {
+            maxId = row.getMaxId() != null ? row.getMaxId() : 0L;
+            takenAt = row.getTakenAt();
+            if (row.getTotal() != null && row.getTotal() > 0) {
+                apply(fresh, new Change(key(row.getSeverity()), key(row.getType()), row.getTotal(), null, null));
+            }
+        }
+        long lastId = maxId;
+        LocalDateTime readAt = takenAt;
+        return new ReconciledState.Snapshot<>(fresh, change -> change.includedIn(lastId, readAt));
+    }
+
+    private void logReplaced(Counts previous, Counts fresh, int replayed) {
+        if (previous != null) {
+            log.info("Open alert counters reconciled: HIGH {} -> {}, MEDIUM {} -> {} ({} changes replayed)",
+                    sum(previous.bySeverity(), "HIGH"), sum(fresh.bySeverity(), "HIGH"),
+                    sum(previous.bySeverity(), "MEDIUM"), sum(fresh.bySeverity(), "MEDIUM"), replayed);
+        } else {
+            log.info("Open alert counters loaded: {} types ({} changes replayed)", fresh.byType().size(), replayed);
+        }
+    }
+
+    private static void apply(Counts target, Change change) {
+        target.bySeverity().computeIfAbsent(change.severity(), k -> new LongAdder()).add(change.delta());
+        target.byType().computeIfAbsent(change.type(), k -> new LongAdder()).add(change.delta());
+    }
+
+    private static long sum(Map<String, LongAdder> counters, String key) {
+        LongAdder counter = counters.get(key(key));
+        return counter != null ? Math.max(0, counter.sum()) : 0L;
+    }
+
+    private static String key(String value) {
+        return value != null ? value : "-";
+    }
+
+    private record Counts(
+            Map<String, LongAdder> bySeverity,
+            Map<String, LongAdder> byType
+    ) {}
+
+    /**
+     * Alta (marca: id de la alerta) o resolución (marca: resolved_at)
+     */
+    private record Change(String severity, String type, long delta, Long alertId, LocalDateTime resolvedAt) {
+
+        // Sin marca no se puede saber: se reaplica y la próxima reconciliación corrige
+        boolean includedIn(long maxId, LocalDateTime takenAt) {
+            if (delta > 0) {
+                return alertId != null && alertId <= maxId;
+            }
+            return resolvedAt != null && takenAt != null && resolvedAt.isBefore(takenAt);
+        }
+    }
+}
@@ -3,10 +3,12 @@ package pe.farmaciasperuanas.ti.venar.ravash.application.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockPredictionDTO;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.PredictionResult;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockTotal;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
 import reactor.core.publisher.Flux;
@@ -22,16 +24,24 @@ import java.util.concurrent.ThreadLocalRandom;
 public class PredictionService {
 
     private final ProductRepository productRepository;
+    private final ProductCache productCache;
     private final InventoryRepository inventoryRepository;
 
     @Autowired(required = false)
     private MLIntegrationService mlIntegrationService;
 
+    // Con false todas las predicciones (por producto, en bloque y anomalías) usan la simulación
+    @Value("${ml.service.enabled:true}")
+    private boolean mlEnabled;
+
+    @Value("${ml.service.max-concurrency:16}")
+    private int mlMaxConcurrency;
+
     /**
      * Obtiene predicción usando ML si está disponible, sino usa simulación
      */
     public Mono<StockPredictionDTO> predictStockForProduct(Long productId) {
-        return productRepository.findById(productId)
+        return productCache.findById(productId)
                 .zipWith(inventoryRepository.findByProductId(productId).collectList())
                 .flatMap(tuple -> {
                     Product product = tuple.getT1();
@@ -42,25 +52,46 @@ public class PredictionService {
                             .mapToInt(i -> i.getCurrentStock())
                             .sum();
 
-                    // Intentar usar servicio ML si está disponible
-                    if (mlIntegrationService != null) {
-                        return mlIntegrationService.getPredictionFromML(product, currentStock)
-                                .map(mlPrediction -> buildStockPredictionDTO(product, currentStock, mlPrediction))
-                                .switchIfEmpty(
-                                        // Fallback a simulación si ML falla
-                                        Mono.defer(() -> {
-                                            PredictionResult simulated = simulatePrediction(product, currentStock);
-                                            return Mono.just(buildStockPredictionDTO(product, currentStock, simulated));
-                                        })
-                                );
-                    } else {
-                        // Si no hay servicio ML, usar simulación
-                        PredictionResult prediction = simulatePrediction(product, currentStock);
-                        return Mono.just(buildStockPredictionDTO(product, currentStock, prediction));
-                    }
+                    return predictStock(product, currentStock);
                 });
     }
 
+    /**
+     * Predicción en bloque: una sola consulta de stock por lote de productos y
+     * concurrencia acotada hacia el servicio ML
+     */
+    public Flux<StockPredictionDTO> predictStockForProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return Flux.empty();
+        }
+        List<Long> productIds = products.stream().map(Product::getId).toList();
+
+        return inventoryRepository.sumStockByProductIds(productIds)
+                .collectMap(ProductStockTotal::getProductId, ProductStockTotal::getTotalStock)
+                .flatMapMany(totals -> Flux.fromIterable(products)
+                        .flatMap(product -> predictStock(product, totals.getOrDefault(product.getId(), 0)),
+                                mlMaxConcurrency));
+    }
+
+    private Mono<StockPredictionDTO> predictStock(Product product, int currentStock) {
+        // Intentar usar servicio ML si está disponible
+        if (useMl()) {
+            return mlIntegrationService.getPredictionFromML(product, currentStock)
+                    .map(mlPrediction -> buildStockPredictionDTO(product, currentStock, mlPrediction))
+                    .switchIfEmpty(
+                            // Fallback a simulación si ML falla
+                            Mono.defer(() -> {
+                                PredictionResult simulated = simulatePrediction(product, currentStock);
+                                return Mono.just(buildStockPredictionDTO(product, currentStock, simulated));
+                            })
+                    );
+        } else {
+            // Si no hay servicio ML, usar simulación
+            PredictionResult prediction = simulatePrediction(product, currentStock);
+            return Mono.just(buildStockPredictionDTO(product, currentStock, prediction));
+        }
+    }
+
     public Flux<StockPredictionDTO> getUrgentPredictions() {
         return productRepository.findByActiveTrue()
                 .flatMap(product -> predictStockForProduct(product.getId()))
@@ -74,10 +105,10 @@ public class PredictionService {
     }
 
     public Mono<PredictionResult> generateAdvancedPrediction(Long productId) {
-        return productRepository.findById(productId)
+        return productCache.findById(productId)
                 .flatMap(product -> {
                     // Si hay servicio ML disponible, obtener análisis completo
-                    if (mlIntegrationService != null) {
+                    if (useMl()) {
                         return inventoryRepository.findByProductId(productId)
                                 .collectList()
                                 .flatMap(inventories -> {
@@ -98,7 +129,7 @@ public class PredictionService {
      * Detecta anomalías usando ML si está disponible
      */
     public Mono<Boolean> detectAnomaliesForProduct(Long productId) {
-        if (mlIntegrationService == null) {
+        if (!useMl()) {
             return Mono.just(false);
         }
 
@@ -110,6 +141,16 @@ public class PredictionService {
                 .onErrorReturn(false);
     }
 
+    // Simulación reproducible: misma semilla por producto y día, así un snapshot sin cambios de datos
+    // no cambia de predicciones (ni de versión) en cada recálculo
+    private static Random simulationRandom(Product product) {
+        return new Random(Objects.hash(product.getId(), LocalDate.now()));
+    }
+
+    private boolean useMl() {
+        return mlIntegrationService != null && mlEnabled;
+    }
+
     private PredictionResult simulatePrediction(Product product, int currentStock) {
         // Simulación basada en parámetros del producto
         double avgDailySales = product.getAverageDailySales() != null ?
@@ -119,7 +160,8 @@ public class PredictionService {
                 product.getSalesVariability() : 0.2;
 
         // Agregar variabilidad aleatoria para simular demanda real
-        double randomFactor = 1 + (ThreadLocalRandom.current().nextDouble() - 0.5) * variability;
+        Random random = simulationRandom(product);
+        double randomFactor = 1 + (random.nextDouble() - 0.5) * variability;
 
         double demand7Days = avgDailySales * 7 * randomFactor;
         double demand30Days = avgDailySales * 30 * randomFactor *
@@ -131,11 +173,11 @@ public class PredictionService {
                 .sku(product.getSku())
                 .predictedDemandNext7Days(demand7Days)
                 .predictedDemandNext30Days(demand30Days)
-                .confidenceLevel(calculateConfidence(product))
+                .confidenceLevel(calculateConfidence(product, random))
                 .recommendedOrderQuantity(calculateOrderQuantity(product))
                 .recommendedOrderDate(calculateOrderDate(product))
                 .estimatedStockoutRisk(calculateStockoutRisk(currentStock, demand7Days))
-                .demandTrend(analyzeTrend(product))
+                .demandTrend(analyzeTrend(random))
                 .seasonalFactors(getSeasonalFactors(product))
                 .predictionMethod("STATISTICAL_SIMULATION")
                 .predictionDate(LocalDate.now())
@@ -143,17 +185,18 @@ public class PredictionService {
     }
 
     private PredictionResult generateSimulatedAdvancedPrediction(Product product) {
+        Random random = simulationRandom(product);
         return PredictionResult.builder()
                 .productId(product.getId())
                 .productName(product.getName())
                 .sku(product.getSku())
                 .predictedDemandNext7Days(calculateDemand(product, 7))
                 .predictedDemandNext30Days(calculateDemand(product, 30))
-                .confidenceLevel(85.0 + ThreadLocalRandom.current().nextDouble(10))
+                .confidenceLevel(85.0 + random.nextDouble(10))
                 .recommendedOrderQuantity(calculateOrderQuantity(product))
                 .recommendedOrderDate(calculateOrderDate(product))
-                .estimatedStockoutRisk(calculateStockoutRisk(product))
-                .demandTrend(analyzeTrend(product))
+                .estimatedStockoutRisk(calculateStockoutRisk(product, random))
+                .demandTrend(analyzeTrend(random))
                 .seasonalFactors(getSeasonalFactors(product))
                 .predictionMethod("ADVANCED_SIMULATION")
                 .predictionDate(LocalDate.now())
@@ -225,10 +268,10 @@ public class PredictionService {
         return LocalDate.now();
     }
 
-    private double calculateStockoutRisk(Product product) {
+    private double calculateStockoutRisk(Product product, Random random) {
         double variability = product.getSalesVariability() != null ?
                 product.getSalesVariability() : 0.2;
-        return Math.min(100, variability * 100 * ThreadLocalRandom.current().nextDouble(1.5));
+        return Math.min(100, variability * 100 * random.nextDouble(1.5));
     }
 
     private double calculateStockoutRisk(int currentStock, double predictedDemand) {
@@ -241,10 +284,10 @@ public class PredictionService {
         return (1 - ratio) * 100;
     }
 
-    private String analyzeTrend(Product product) {
-        double random = ThreadLocalRandom.current().nextDouble();
-        if (random < 0.3) return "DECREASING";
-        if (random < 0.7) return "STABLE";
+    private String analyzeTrend(Random random) {
+        double value = random.nextDouble();
+        if (value < 0.3) return "DECREASING";
+        if (value < 0.7) return "STABLE";
         return "INCREASING";
     }
 
@@ -272,12 +315,12 @@ public class PredictionService {
         return factors.getOrDefault(monthKey.substring(0, 1) + monthKey.substring(1).toLowerCase(), 1.0) - 1.0;
     }
 
-    private double calculateConfidence(Product product) {
+    private double calculateConfidence(Product product, Random random) {
         double baseConfidence = 70.0;
         if (product.getSalesVariability() != null && product.getSalesVariability() < 0.3) {
             baseConfidence += 15;
         }
-        return Math.min(95, baseConfidence + ThreadLocalRandom.current().nextDouble(10));
+        return Math.min(95, baseConfidence + random.nextDouble(10));
     }
 
     private String determineUrgency(Integer daysUntilStockout, Integer leadTimeDays) {
@@ -0,0 +1,181 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché acotada (LRU + TTL) del maestro de productos, indexada por id y por SKU.
+ * Las lecturas pasan por la caché; las escrituras de ProductService la refrescan o invalidan.
+ * Los productos cacheados se comparten: quien los lea no debe modificarlos.
+ * <p>
+ * Una lectura que falla en caché toma la generación antes de ir a la base de datos y solo cachea
+ * lo leído si ninguna escritura (put o invalidación) ocurrió mientras tanto; si no, podría dejar
+ * en caché la versión previa a un updateProduct concurrente.
+ */
+@Component
+@Slf4j
+public class ProductCache {
+
+    private final ProductRepository productRepository;
+    private final int capacity;
+    private final long ttlNanos;
+
+    private final Map<String, Long> idsBySku = new HashMap<>();
+    private final LinkedHashMap<Long, CachedProduct> productsById;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+
+    // Avanza con cada escritura; lo protege el monitor de la caché
+    private long generation;
+
+    public ProductCache(ProductRepository productRepository,
+                        @Value("${products.cache.max-size:5000}") int capacity,
+                        @Value("${products.cache.ttl-minutes:10}") long ttlMinutes) {
+        this.productRepository = productRepository;
+        this.capacity = capacity;
+        this.ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+        this.productsById = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedProduct> eldest) {
+                if (size() > ProductCache.this.capacity) {
+                    idsBySku.remove(eldest.getValue().product().getSku());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Mono<Product> findById(Long id) {
+        return Mono.defer(() -> {
+            Product cached = get(id);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(cached);
+            }
+            misses.increment();
+            long loadedAt = currentGeneration();
+            return productRepository.findById(id)
+                    .doOnNext(product -> putLoaded(product, loadedAt));
+        });
+    }
+
+    public Mono<Product> findBySku(String sku) {
+        return Mono.defer(() -> {
+            Product cached = getBySku(sku);
+            if (cached != null) {
+                hits.increment();
+                return Mono.just(cached);
+            }
+            misses.increment();
+            long loadedAt = currentGeneration();
+            return productRepository.findBySku(sku)
+                    .doOnNext(product -> putLoaded(product, loadedAt));
+        });
+    }
+
+    public synchronized void put(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        generation++;
+        store(product);
+    }
+
+    public synchronized void invalidate(Long id) {
+        generation++;
+        remove(id);
+    }
+
+    public synchronized void invalidateSku(String sku) {
+        generation++;
+        Long id = idsBySku.get(sku);
+        if (id != null) {
+            remove(id);
+        }
+    }
+
+    public synchronized Stats getStats() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return new Stats(productsById.size(), hitCount, misses.sum(), evictions.sum(), expirations.sum(),
+                discardedLoads.sum(), total == 0 ? 0 : (double) hitCount / total);
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    // Lectura de la base de datos: se descarta si hubo escrituras desde que empezó
+    private synchronized void putLoaded(Product product, long loadedAt) {
+        if (product.getId() == null) {
+            return;
+        }
+        if (generation != loadedAt) {
+            discardedLoads.increment();
+            return;
+        }
+        store(product);
+    }
+
+    private void store(Product product) {
+        CachedProduct previous = productsById.put(product.getId(),
+                new CachedProduct(product, System.nanoTime() + ttlNanos));
+        if (previous != null && !previous.product().getSku().equals(product.getSku())) {
+            idsBySku.remove(previous.product().getSku());
+        }
+        idsBySku.put(product.getSku(), product.getId());
+    }
+
+    private void remove(Long id) {
+        CachedProduct removed = productsById.remove(id);
+        if (removed != null) {
+            idsBySku.remove(removed.product().getSku());
+        }
+    }
+
+    private synchronized Product get(Long id) {
+        CachedProduct cached = productsById.get(id);
+        if (cached == null) {
+            return null;
+        }
+        if (System.nanoTime() - cached.expiresAt() > 0) {
+            remove(id);
+            expirations.increment();
+            return null;
+        }
+        return cached.product();
+    }
+
+    private synchronized Product getBySku(String sku) {
+        Long id = idsBySku.get(sku);
+        return id != null ? get(id) : null;
+    }
+
+    private record CachedProduct(Product product, long expiresAt) {}
+
+    public record Stats(
+            int size,
+            long hits,
+            long misses,
+            long evictions,
+            long expirations,
+            long discardedLoads,
+            double hitRatio
+    ) {}
+}
@@ -0,0 +1,333 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductImportEvent;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepositoryCustom;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva de productos desde CSV o NDJSON. El archivo se procesa línea a línea
+ * y se escribe por lotes con INSERT multi-fila; solo se retiene en memoria el lote en curso
+ * y el conjunto de SKU ya vistos para detectar duplicados dentro del archivo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    private static final Map<String, String> CSV_COLUMNS = Map.ofEntries(
+            Map.entry("sku", "sku"),
+            Map.entry("name", "name"),
+            Map.entry("nombre", "name"),
+            Map.entry("description", "description"),
+            Map.entry("descripcion", "description"),
+            Map.entry("category", "category"),
+            Map.entry("categoria", "category"),
+            Map.entry("brand", "brand"),
+            Map.entry("marca", "brand"),
+            Map.entry("costprice", "costPrice"),
+            Map.entry("cost_price", "costPrice"),
+            Map.entry("saleprice", "salePrice"),
+            Map.entry("sale_price", "salePrice"),
+            Map.entry("minstock", "minStock"),
+            Map.entry("min_stock", "minStock")
+    );
+
+    private final ProductRepository productRepository;
+    private final ProductRepositoryCustom productRepositoryCustom;
+    private final ProductCache productCache;
+    private final InventoryValuation inventoryValuation;
+    private final ProductSearchIndex productSearchIndex;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${products.import.batch-size:500}")
+    private int batchSize;
+
+    public enum Format { CSV, NDJSON }
+
+    public Flux<ProductImportEvent> importProducts(Flux<DataBuffer> body, Format format, boolean updateExisting) {
+        return Flux.defer(() -> {
+            ImportProgress progress = new ImportProgress();
+            Set<String> seenSkus = new HashSet<>();
+            List<String> header = new ArrayList<>();
+
+            return StringDecoder.textPlainOnly().decode(body, STRING_TYPE, null, null)
+                    .index()
+                    .filter(line -> !line.getT2().isBlank())
+                    .filter(line -> {
+                        if (format == Format.CSV && header.isEmpty()) {
+                            parseCsvLine(line.getT2()).forEach(column -> header.add(
+                                    CSV_COLUMNS.getOrDefault(column.trim().toLowerCase(Locale.ROOT), column.trim())));
+                            return false;
+                        }
+                        return true;
+                    })
+                    .map(line -> {
+                        long lineNumber = line.getT1() + 1;
+                        ImportRow row = format == Format.CSV
+                                ? fromCsv(lineNumber, header, line.getT2())
+                                : fromJson(lineNumber, line.getT2());
+                        return validate(row, seenSkus);
+                    })
+                    .buffer(batchSize)
+                    .concatMap(rows -> writeBatch(rows, updateExisting, progress))
+                    .concatWith(Mono.fromSupplier(() -> progress.toEvent("SUMMARY")))
+                    .doOnComplete(() -> log.info("Product import completed: processed={}, inserted={}, " +
+                                    "updated={}, failed={}", progress.processed, progress.inserted,
+                            progress.updated, progress.failed));
+        });
+    }
+
+    private Flux<ProductImportEvent> writeBatch(List<ImportRow> rows, boolean updateExisting,
+                                                ImportProgress progress) {
+        List<ImportRow> valid = rows.stream().filter(row -> row.error() == null).toList();
+        Set<String> skus = valid.stream().map(row -> row.product().getSku()).collect(Collectors.toSet());
+
+        // Se conservan los productos existentes: su costo y categoría previos revalúan el inventario
+        Mono<Map<String, Product>> existingProducts = skus.isEmpty()
+                ? Mono.just(Map.of())
+                : productRepository.findBySkuIn(skus).collectMap(Product::getSku);
+
+        return existingProducts.flatMapMany(existingBySku -> {
+            Set<String> existing = existingBySku.keySet();
+            List<ProductImportEvent> events = new ArrayList<>();
+            rows.stream()
+                    .filter(row -> row.error() != null)
+                    .forEach(row -> events.add(progress.fail(row, row.error())));
+
+            List<ImportRow> toWrite = new ArrayList<>();
+            for (ImportRow row : valid) {
+                if (!updateExisting && existing.contains(row.product().getSku())) {
+                    events.add(progress.fail(row, "SKU ya existe: " + row.product().getSku()));
+                } else {
+                    toWrite.add(row);
+                }
+            }
+
+            return productRepositoryCustom.upsertAll(toWrite.stream().map(ImportRow::product).toList(),
+                            updateExisting)
+                    .flatMap(written -> {
+                        // Las altas y actualizaciones salen de las filas afectadas, no de la lectura previa:
+                        // un SKU dado de alta por otra escritura entre ambas no cuenta como alta
+                        long inserted = updateExisting
+                                ? Math.max(0, Math.min(toWrite.size(), 2L * toWrite.size() - written))
+                                : written;
+                        long skipped = updateExisting ? 0 : toWrite.size() - written;
+                        progress.inserted.addAndGet(inserted);
+                        progress.updated.addAndGet(toWrite.size() - inserted - skipped);
+                        if (skipped > 0) {
+                            events.add(progress.skipped(skipped));
+                        }
+                        if (updateExisting) {
+                            toWrite.forEach(row -> productCache.invalidateSku(row.product().getSku()));
+                        }
+                        return revalue(toWrite, existingBySku).then(indexWritten(toWrite));
+                    })
+                    .thenReturn(events)
+                    .onErrorResume(error -> {
+                        log.error("Error writing import batch of {} products", toWrite.size(), error);
+                        toWrite.forEach(row -> events.add(progress.fail(row, "Error al guardar: " + error.getMessage())));
+                        return Mono.just(events);
+                    })
+                    .flatMapIterable(batchEvents -> batchEvents)
+                    .concatWith(Mono.fromSupplier(() -> {
+                        progress.processed.addAndGet(rows.size());
+                        return progress.toEvent("PROGRESS");
+                    }));
+        });
+    }
+
+    // Productos actualizados cuyo costo o categoría cambió: se revalúa su stock
+    private Mono<Void> revalue(List<ImportRow> written, Map<String, Product> existingBySku) {
+        return Flux.fromIterable(written)
+                .filter(row -> existingBySku.containsKey(row.product().getSku()))
+                .concatMap(row -> {
+                    Product previous = existingBySku.get(row.product().getSku());
+                    return inventoryValuation.onProductChanged(previous.getId(), previous.getCostPrice(),
+                            previous.getCategory(), row.product().getCostPrice(), row.product().getCategory());
+                })
+                .then();
+    }
+
+    // Relee el lote escrito para obtener los ids y reflejarlo en el índice de búsqueda
+    private Mono<Void> indexWritten(List<ImportRow> written) {
+        if (written.isEmpty()) {
+            return Mono.empty();
+        }
+        return productRepository.findBySkuIn(written.stream().map(row -> row.product().getSku()).toList())
+                .doOnNext(productSearchIndex::put)
+                .then();
+    }
+
+    private ImportRow validate(ImportRow row, Set<String> seenSkus) {
+        if (row.error() != null) {
+            return row;
+        }
+
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(row.dto());
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            return row.failed(message);
+        }
+        if (!seenSkus.add(row.dto().getSku())) {
+            return row.failed("SKU duplicado en el archivo: " + row.dto().getSku());
+        }
+        return row;
+    }
+
+    private ImportRow fromJson(long lineNumber, String line) {
+        try {
+            ProductDTO dto = objectMapper.readValue(line, ProductDTO.class);
+            // Una línea "null" es JSON válido pero no describe un producto
+            return dto != null
+                    ? ImportRow.of(lineNumber, dto)
+                    : new ImportRow(lineNumber, null, null, "JSON inválido: se esperaba un objeto");
+        } catch (JsonProcessingException e) {
+            return new ImportRow(lineNumber, null, null, "JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private ImportRow fromCsv(long lineNumber, List<String> header, String line) {
+        List<String> values = parseCsvLine(line);
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size() && i < values.size(); i++) {
+            String value = values.get(i).trim();
+            fields.put(header.get(i), value.isEmpty() ? null : value);
+        }
+
+        try {
+            return ImportRow.of(lineNumber, ProductDTO.builder()
+                    .sku(fields.get("sku"))
+                    .name(fields.get("name"))
+                    .description(fields.get("description"))
+                    .category(fields.get("category"))
+                    .brand(fields.get("brand"))
+                    .costPrice(fields.get("costPrice") != null ? new BigDecimal(fields.get("costPrice")) : null)
+                    .salePrice(fields.get("salePrice") != null ? new BigDecimal(fields.get("salePrice")) : null)
+                    .minStock(fields.get("minStock") != null ? Integer.valueOf(fields.get("minStock")) : null)
+                    .build());
+        } catch (NumberFormatException e) {
+            return new ImportRow(lineNumber, null, null, "Valor numérico inválido");
+        }
+    }
+
+    // CSV con comillas dobles opcionales y "" como comilla escapada
+    private static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record ImportRow(long line, ProductDTO dto, Product product, String error) {
+
+        private static ImportRow of(long line, ProductDTO dto) {
+            Product product = Product.builder()
+                    .sku(dto.getSku())
+                    .name(dto.getName())
+                    .description(dto.getDescription())
+                    .category(dto.getCategory())
+                    .brand(dto.getBrand())
+                    .costPrice(dto.getCostPrice())
+                    .salePrice(dto.getSalePrice())
+                    .minStock(dto.getMinStock())
+                    .active(true)
+                    .build();
+            return new ImportRow(line, dto, product, null);
+        }
+
+        private ImportRow failed(String message) {
+            return new ImportRow(line, dto, product, message);
+        }
+    }
+
+    private static final class ImportProgress {
+
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong inserted = new AtomicLong();
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private ProductImportEvent fail(ImportRow row, String message) {
+            failed.incrementAndGet();
+            return ProductImportEvent.builder()
+                    .event("ERROR")
+                    .line(row.line())
+                    .sku(row.dto() != null ? row.dto().getSku() : null)
+                    .message(message)
+                    .build();
+        }
+
+        // SKU que no estaban al leer el lote pero sí al escribirlo: el INSERT los omitió
+        private ProductImportEvent skipped(long count) {
+            failed.addAndGet(count);
+            return ProductImportEvent.builder()
+                    .event("ERROR")
+                    .message(count + " SKU del lote ya existían al guardarlo (alta concurrente)")
+                    .build();
+        }
+
+        private ProductImportEvent toEvent(String event) {
+            return ProductImportEvent.builder()
+                    .event(event)
+                    .processed(processed.get())
+                    .inserted(inserted.get())
+                    .updated(updated.get())
+                    .failed(failed.get())
+                    .build();
+        }
+    }
+}
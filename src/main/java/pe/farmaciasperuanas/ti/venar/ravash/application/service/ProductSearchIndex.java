@@ -0,0 +1,350 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductSearchHit;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria de los productos activos (SKU, nombre, marca y categoría) para búsqueda
+ * por prefijo, sin distinguir mayúsculas ni tildes. Se construye al iniciar y ProductService lo mantiene
+ * al crear, actualizar o eliminar productos. Durante la construcción, una fila leída de la base de datos
+ * no pisa un producto que ya se actualizó o eliminó en vivo.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Comparator<Ranked> RANKING = Comparator.comparingInt(Ranked::score).reversed()
+            .thenComparing(ranked -> ranked.product().name(), Comparator.nullsLast(String::compareTo));
+
+    private final ProductRepository productRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, IndexedProduct> products = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    // Ids actualizados o eliminados en vivo mientras se construye el índice; null fuera de la construcción
+    private Set<Long> liveUpdates;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long startedAt = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            liveUpdates = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        productRepository.findByActiveTrue()
+                .doOnNext(this::putFromBuild)
+                .count()
+                .doFinally(signal -> {
+                    lock.writeLock().lock();
+                    try {
+                        liveUpdates = null;
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                })
+                .subscribe(
+                        count -> log.info("Product search index built: {} products in {}ms, {}", count,
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), getStats()),
+                        error -> log.error("Error building product search index", error)
+                );
+    }
+
+    public void put(Product product) {
+        if (product.getId() == null) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(product.getActive())) {
+            remove(product.getId());
+            return;
+        }
+
+        IndexedProduct indexed = IndexedProduct.of(product);
+        lock.writeLock().lock();
+        try {
+            if (liveUpdates != null) {
+                liveUpdates.add(product.getId());
+            }
+            index(indexed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            if (liveUpdates != null) {
+                liveUpdates.add(productId);
+            }
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Fila leída por la construcción: se descarta si el producto cambió en vivo después de iniciarla
+    private void putFromBuild(Product product) {
+        if (product.getId() == null || !Boolean.TRUE.equals(product.getActive())) {
+            return;
+        }
+        IndexedProduct indexed = IndexedProduct.of(product);
+        lock.writeLock().lock();
+        try {
+            if (liveUpdates == null || !liveUpdates.contains(product.getId())) {
+                index(indexed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Productos que contienen todos los términos de la consulta como prefijo de alguna palabra,
+     * ordenados por relevancia (SKU exacto, luego nombre, marca y categoría). Solo se ordenan los
+     * {@code limit} mejores (montículo acotado), no todos los candidatos.
+     */
+    public List<ProductSearchHit> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Set<Long> candidates = null;
+            for (String token : queryTokens) {
+                Set<Long> matches = new HashSet<>();
+                postings.subMap(token, true, token + Character.MAX_VALUE, false)
+                        .values()
+                        .forEach(matches::addAll);
+                if (candidates == null) {
+                    candidates = matches;
+                } else {
+                    candidates.retainAll(matches);
+                }
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            String normalizedQuery = String.join(" ", queryTokens);
+            // Montículo con el peor de los mejores en la cabeza
+            PriorityQueue<Ranked> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (Long id : candidates) {
+                IndexedProduct product = products.get(id);
+                Ranked ranked = new Ranked(product, score(product, queryTokens, normalizedQuery));
+                if (top.size() < limit) {
+                    top.add(ranked);
+                } else if (RANKING.compare(ranked, top.peek()) < 0) {
+                    top.poll();
+                    top.add(ranked);
+                }
+            }
+            return top.stream()
+                    .sorted(RANKING)
+                    .map(ranked -> ranked.product().toHit(ranked.score()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public IndexStats getStats() {
+        lock.readLock().lock();
+        try {
+            long postingEntries = 0;
+            long termChars = 0;
+            for (Map.Entry<String, Set<Long>> entry : postings.entrySet()) {
+                postingEntries += entry.getValue().size();
+                termChars += entry.getKey().length();
+            }
+            long productChars = products.values().stream().mapToLong(IndexedProduct::chars).sum();
+
+            // Estimación aproximada para JVM de 64 bits con oops comprimidos
+            long estimatedBytes = postings.size() * (40L + 56L + 48L) + termChars * 2
+                    + postingEntries * (32L + 16L)
+                    + products.size() * (32L + 16L + 64L) + productChars * 2 * 2;
+            return new IndexStats(products.size(), postings.size(), postingEntries, estimatedBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String value) {
+        String normalized = normalize(value).trim();
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(SEPARATORS.split(normalized))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    private void index(IndexedProduct indexed) {
+        IndexedProduct previous = products.put(indexed.id(), indexed);
+        if (previous != null) {
+            unindex(previous);
+        }
+        for (String term : indexed.terms()) {
+            postings.computeIfAbsent(term, t -> new HashSet<>()).add(indexed.id());
+        }
+    }
+
+    private void unindex(Long productId) {
+        IndexedProduct previous = products.remove(productId);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    private void unindex(IndexedProduct product) {
+        for (String term : product.terms()) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(product.id());
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static int score(IndexedProduct product, List<String> queryTokens, String normalizedQuery) {
+        int score = 0;
+        String compactQuery = String.join("", queryTokens);
+        if (product.skuKey().equals(compactQuery)) {
+            score += 100;
+        } else if (product.skuKey().startsWith(compactQuery)) {
+            score += 50;
+        }
+        if (product.normalizedName().startsWith(normalizedQuery)) {
+            score += 15;
+        }
+        for (String token : queryTokens) {
+            score += fieldScore(product.nameTokens(), token, 20, 10);
+            score += fieldScore(product.brandTokens(), token, 8, 5);
+            score += fieldScore(product.categoryTokens(), token, 4, 2);
+        }
+        return score;
+    }
+
+    private static int fieldScore(List<String> fieldTokens, String token, int exact, int prefix) {
+        int best = 0;
+        for (String fieldToken : fieldTokens) {
+            if (fieldToken.equals(token)) {
+                return exact;
+            }
+            if (fieldToken.startsWith(token)) {
+                best = prefix;
+            }
+        }
+        return best;
+    }
+
+    private record IndexedProduct(
+            Long id,
+            String sku,
+            String name,
+            String brand,
+            String category,
+            String skuKey,
+            String normalizedName,
+            List<String> nameTokens,
+            List<String> brandTokens,
+            List<String> categoryTokens
+    ) {
+
+        private static IndexedProduct of(Product product) {
+            List<String> nameTokens = tokenize(product.getName());
+            return new IndexedProduct(
+                    product.getId(),
+                    product.getSku(),
+                    product.getName(),
+                    product.getBrand(),
+                    product.getCategory(),
+                    String.join("", tokenize(product.getSku())),
+                    String.join(" ", nameTokens),
+                    nameTokens,
+                    tokenize(product.getBrand()),
+                    tokenize(product.getCategory()));
+        }
+
+        private Set<String> terms() {
+            Set<String> terms = new HashSet<>(tokenize(sku));
+            if (!skuKey.isEmpty()) {
+                terms.add(skuKey);
+            }
+            terms.addAll(nameTokens);
+            terms.addAll(brandTokens);
+            terms.addAll(categoryTokens);
+            return terms;
+        }
+
+        private long chars() {
+            return length(sku) + length(name) + length(brand) + length(category)
+                    + skuKey.length() + normalizedName.length();
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+
+        private ProductSearchHit toHit(int score) {
+            return ProductSearchHit.builder()
+                    .id(id)
+                    .sku(sku)
+                    .name(name)
+                    .brand(brand)
+                    .category(category)
+                    .score(score)
+                    .build();
+        }
+    }
+
+    private record Ranked(IndexedProduct product, int score) {}
+
+    public record IndexStats(
+            int products,
+            int terms,
+            long postings,
+            long estimatedBytes
+    ) {}
+}
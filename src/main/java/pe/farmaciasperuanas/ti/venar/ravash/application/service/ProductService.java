@@ -1,27 +1,58 @@
 package pe.farmaciasperuanas.ti.venar.ravash.application.service;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductPageDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductSearchHit;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockLevel;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String CURSOR_PREFIX = "p1:";
+
     private final ProductRepository productRepository;
     private final InventoryRepository inventoryRepository;
+    private final InventoryStockLoader inventoryStockLoader;
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final InventoryValuation inventoryValuation;
+
+    @Value("${products.stream.page-size:500}")
+    private int streamPageSize;
+
+    @PostConstruct
+    public void validateConfig() {
+        // streamProducts encadena páginas mientras vengan llenas: con 0 filas por página no terminaría
+        if (streamPageSize < 1) {
+            throw new IllegalStateException("products.stream.page-size debe ser al menos 1: " + streamPageSize);
+        }
+    }
 
     public Mono<ProductDTO> createProduct(ProductDTO dto) {
         log.info("Creating product with SKU: {}", dto.getSku());
 
-        return productRepository.findBySku(dto.getSku())
+        return productCache.findBySku(dto.getSku())
                 .flatMap(existing -> Mono.<Product>error(new RuntimeException("SKU ya existe: " + dto.getSku())))
                 .switchIfEmpty(Mono.defer(() -> {
                     Product product = Product.builder()
@@ -38,37 +69,137 @@ public class ProductService {
 
                     return productRepository.save(product);
                 }))
+                .doOnNext(productCache::put)
+                .doOnNext(productSearchIndex::put)
                 .map(this::toDTO)
                 .doOnSuccess(saved -> log.info("Product created: {}", saved.getId()));
     }
 
     public Mono<ProductDTO> getProduct(Long id) {
-        return productRepository.findById(id)
+        return productCache.findById(id)
                 .switchIfEmpty(Mono.error(new RuntimeException("Producto no encontrado: " + id)))
                 .flatMap(this::enrichWithInventoryData);
     }
 
     public Flux<ProductDTO> getAllProducts() {
         return productRepository.findByActiveTrue()
-                .flatMap(this::enrichWithInventoryData);
+                .flatMapSequential(this::enrichWithInventoryData);
+    }
+
+    /**
+     * Página de productos activos por keyset (id > cursor ORDER BY id LIMIT n)
+     */
+    public Mono<ProductPageDTO> getProductsPage(String cursor, String category, String brand, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        return Mono.fromCallable(() -> decodeCursor(cursor))
+                .flatMapMany(afterId -> findActivePage(afterId, category, brand, pageSize + 1))
+                .flatMapSequential(this::enrichWithInventoryData)
+                .collectList()
+                .map(products -> {
+                    boolean hasMore = products.size() > pageSize;
+                    List<ProductDTO> items = hasMore ? products.subList(0, pageSize) : products;
+                    return ProductPageDTO.builder()
+                            .items(items)
+                            .hasMore(hasMore)
+                            .nextCursor(hasMore ? encodeCursor(items.get(items.size() - 1).getId()) : null)
+                            .build();
+                });
+    }
+
+    /**
+     * Todos los productos activos encadenando páginas por keyset. La siguiente página solo se consulta
+     * cuando el consumidor terminó de pedir la anterior, así la contrapresión llega hasta el cursor R2DBC.
+     */
+    public Flux<ProductDTO> streamProducts(String category, String brand) {
+        return Flux.defer(() -> {
+            AtomicLong lastId = new AtomicLong(0);
+            AtomicInteger pageRows = new AtomicInteger();
+
+            return Flux.defer(() -> {
+                        pageRows.set(0);
+                        return findActivePage(lastId.get(), category, brand, streamPageSize);
+                    })
+                    .doOnNext(product -> {
+                        lastId.set(product.getId());
+                        pageRows.incrementAndGet();
+                    })
+                    .repeat(() -> pageRows.get() == streamPageSize);
+        }).flatMapSequential(this::enrichWithInventoryData);
+    }
+
+    private Flux<Product> findActivePage(Long afterId, String category, String brand, int limit) {
+        if (category != null && brand != null) {
+            return productRepository.findActivePageByCategoryAndBrand(afterId, category, brand, limit);
+        }
+        if (category != null) {
+            return productRepository.findActivePageByCategory(afterId, category, limit);
+        }
+        if (brand != null) {
+            return productRepository.findActivePageByBrand(afterId, brand, limit);
+        }
+        return productRepository.findActivePage(afterId, limit);
+    }
+
+    public List<ProductSearchHit> searchProducts(String query, int limit) {
+        return productSearchIndex.search(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
     }
 
     public Flux<ProductDTO> getLowStockProducts() {
         return productRepository.findLowStockProducts()
-                .flatMap(this::enrichWithInventoryData)
+                .flatMapSequential(this::enrichWithInventoryData)
                 .doOnNext(p -> p.setStockStatus("LOW"));
     }
 
     public Flux<ProductDTO> getOverstockProducts() {
         return productRepository.findOverstockProducts()
-                .flatMap(this::enrichWithInventoryData)
+                .flatMapSequential(this::enrichWithInventoryData)
+                .doOnNext(p -> p.setStockStatus("OVERSTOCK"));
+    }
+
+    /**
+     * Productos con mayor déficit relativo (stock total / mínimo), ordenados y limitados en la base de datos
+     */
+    public Flux<ProductDTO> getTopLowStockProducts(int limit) {
+        return inventoryRepository.findTopLowStockLevels(limit)
+                .map(this::toDTO)
+                .doOnNext(p -> p.setStockStatus("LOW"));
+    }
+
+    /**
+     * Productos con mayor exceso relativo (stock total / máximo), ordenados y limitados en la base de datos
+     */
+    public Flux<ProductDTO> getTopOverstockProducts(int limit) {
+        return inventoryRepository.findTopOverstockLevels(limit)
+                .map(this::toDTO)
                 .doOnNext(p -> p.setStockStatus("OVERSTOCK"));
     }
 
+    /**
+     * Productos perecibles con el vencimiento más próximo (dentro de 7 días)
+     */
+    public Flux<ProductDTO> getTopExpiringProducts(int limit) {
+        return inventoryRepository.findTopExpiringStockLevels(limit)
+                .map(this::toDTO);
+    }
+
+    /**
+     * Salud de stock promedio de los productos activos, con el stock agregado en una sola consulta
+     * y un acumulador de memoria constante (misma fórmula que el detalle de producto).
+     */
+    public Mono<Double> getAverageStockHealth() {
+        return inventoryRepository.findActiveStockLevels()
+                .map(level -> calculateStockHealth(level.getTotalStock(), level.getMinStock(), level.getMaxStock()))
+                .collect(DoubleSummaryStatistics::new, DoubleSummaryStatistics::accept)
+                .map(stats -> stats.getCount() == 0 ? 75.0 : stats.getAverage());
+    }
+
     public Mono<ProductDTO> updateProduct(Long id, ProductDTO dto) {
         return productRepository.findById(id)
                 .switchIfEmpty(Mono.error(new RuntimeException("Producto no encontrado")))
                 .flatMap(product -> {
+                    BigDecimal previousCost = product.getCostPrice();
+                    String previousCategory = product.getCategory();
                     product.setName(dto.getName());
                     product.setDescription(dto.getDescription());
                     product.setCategory(dto.getCategory());
@@ -76,8 +207,14 @@ public class ProductService {
                     product.setCostPrice(dto.getCostPrice());
                     product.setSalePrice(dto.getSalePrice());
                     product.setMinStock(dto.getMinStock());
-                    return productRepository.save(product);
+                    return productRepository.save(product)
+                            .flatMap(saved -> inventoryValuation.onProductChanged(id, previousCost,
+                                            previousCategory, saved.getCostPrice(), saved.getCategory())
+                                    .thenReturn(saved));
                 })
+                .doOnNext(productCache::put)
+                .doOnNext(productSearchIndex::put)
+                .doOnError(error -> productCache.invalidate(id))
                 .map(this::toDTO);
     }
 
@@ -88,17 +225,14 @@ public class ProductService {
                     product.setActive(false);
                     return productRepository.save(product);
                 })
+                .doOnNext(product -> productSearchIndex.remove(id))
+                .doFinally(signal -> productCache.invalidate(id))
                 .then();
     }
 
     private Mono<ProductDTO> enrichWithInventoryData(Product product) {
-        return inventoryRepository.findByProductId(product.getId())
-                .collectList()
-                .map(inventories -> {
-                    int totalStock = inventories.stream()
-                            .mapToInt(i -> i.getCurrentStock())
-                            .sum();
-
+        return inventoryStockLoader.load(product.getId())
+                .map(totalStock -> {
                     ProductDTO dto = toDTO(product);
                     dto.setCurrentStock(totalStock);
                     dto.setStockHealth(calculateStockHealth(totalStock, product.getMinStock(), product.getMaxStock()));
@@ -107,7 +241,7 @@ public class ProductService {
                 });
     }
 
-    private Double calculateStockHealth(int currentStock, Integer minStock, Integer maxStock) {
+    static Double calculateStockHealth(int currentStock, Integer minStock, Integer maxStock) {
         if (minStock == null) minStock = 0;
         if (maxStock == null) maxStock = Integer.MAX_VALUE;
 
@@ -123,7 +257,7 @@ public class ProductService {
         }
     }
 
-    private String determineStockStatus(int currentStock, Integer minStock, Integer maxStock) {
+    static String determineStockStatus(int currentStock, Integer minStock, Integer maxStock) {
         if (minStock == null) minStock = 0;
         if (maxStock == null) maxStock = Integer.MAX_VALUE;
 
@@ -138,6 +272,44 @@ public class ProductService {
         }
     }
 
+    private static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException(decoded);
+            }
+            return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor inválido: " + cursor);
+        }
+    }
+
+    private ProductDTO toDTO(ProductStockLevel level) {
+        int totalStock = level.getTotalStock() != null ? level.getTotalStock() : 0;
+        return ProductDTO.builder()
+                .id(level.getProductId())
+                .sku(level.getSku())
+                .name(level.getName())
+                .description(level.getDescription())
+                .category(level.getCategory())
+                .brand(level.getBrand())
+                .costPrice(level.getCostPrice())
+                .salePrice(level.getSalePrice())
+                .minStock(level.getMinStock())
+                .currentStock(totalStock)
+                .stockHealth(calculateStockHealth(totalStock, level.getMinStock(), level.getMaxStock()))
+                .stockStatus(determineStockStatus(totalStock, level.getMinStock(), level.getMaxStock()))
+                .build();
+    }
+
     private ProductDTO toDTO(Product product) {
         return ProductDTO.builder()
                 .id(product.getId())
@@ -0,0 +1,150 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Estado en memoria que se ajusta con cada cambio confirmado en base de datos y se reemplaza
+ * periódicamente por el resultado de una consulta de reconciliación, sin bloqueos.
+ * <p>
+ * Cada cambio lleva una marca de la base de datos (id o timestamp de la fila) y cada consulta
+ * devuelve, en la misma sentencia, la marca hasta la que su resultado ya incluye los cambios. Los
+ * cambios que llegan mientras corre la consulta se registran y, tras el reemplazo, se reaplican
+ * solo si son posteriores a esa marca. Cada cambio se aplica a lo sumo una vez por estado (un CAS
+ * sobre la generación), lo aplique quien lo registró o la reconciliación.
+ *
+ * @param <S> estado (contadores concurrentes)
+ * @param <C> cambio con su marca
+ */
+@Slf4j
+public class ReconciledState<S, C> {
+
+    private final String name;
+    private final BiConsumer<S, C> applier;
+
+    private final AtomicReference<Generation<S, C>> current = new AtomicReference<>();
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private volatile boolean reconcileAgain;
+    private volatile Queue<Entry<C>> journal;
+
+    public ReconciledState(String name, BiConsumer<S, C> applier) {
+        this.name = name;
+        this.applier = applier;
+    }
+
+    public S get() {
+        Generation<S, C> generation = current.get();
+        return generation != null ? generation.state() : null;
+    }
+
+    // Cargado, o cargándose por primera vez (los cambios se registran para reaplicarlos)
+    public boolean isTracking() {
+        return current.get() != null || journal != null;
+    }
+
+    /**
+     * Aplica un cambio ya confirmado en base de datos al estado vigente
+     */
+    public void record(C change) {
+        Entry<C> entry = new Entry<>(change);
+        Queue<Entry<C>> changes = journal;
+        if (changes != null) {
+            changes.add(entry);
+        }
+        // Si el estado se reemplaza mientras tanto, se aplica también al nuevo
+        Generation<S, C> generation = current.get();
+        while (generation != null) {
+            apply(generation, entry);
+            Generation<S, C> latest = current.get();
+            if (latest == generation) {
+                break;
+            }
+            generation = latest;
+        }
+    }
+
+    /**
+     * Reemplaza el estado por el resultado de la consulta y reaplica los cambios que no incluye.
+     * Si ya hay una reconciliación en curso, se repite al terminar.
+     */
+    public void reconcile(Supplier<Mono<Snapshot<S, C>>> query, Listener<S> listener) {
+        if (!reconciling.compareAndSet(false, true)) {
+            reconcileAgain = true;
+            return;
+        }
+        reconcileAgain = false;
+        // Se abre antes de la consulta: todo cambio que ella no vea llega al registro o al estado nuevo
+        journal = new ConcurrentLinkedQueue<>();
+        Mono.defer(query)
+                .doFinally(signal -> {
+                    journal = null;
+                    reconciling.set(false);
+                    if (reconcileAgain) {
+                        reconcile(query, listener);
+                    }
+                })
+                .subscribe(
+                        snapshot -> replace(snapshot, listener),
+                        error -> log.error("Error reconciling {}", name, error)
+                );
+    }
+
+    private void replace(Snapshot<S, C> snapshot, Listener<S> listener) {
+        Generation<S, C> fresh = new Generation<>(generations.incrementAndGet(), snapshot.state(), snapshot.includes());
+        Generation<S, C> previous = current.getAndSet(fresh);
+        int replayed = 0;
+        Queue<Entry<C>> changes = journal;
+        if (changes != null) {
+            for (Entry<C> entry : changes) {
+                if (apply(fresh, entry)) {
+                    replayed++;
+                }
+            }
+        }
+        listener.onReplaced(previous != null ? previous.state() : null, fresh.state(), replayed);
+    }
+
+    // Una sola vez por generación, y nunca si el resultado de la consulta ya lo incluye
+    private boolean apply(Generation<S, C> generation, Entry<C> entry) {
+        if (generation.includes().test(entry.change())) {
+            return false;
+        }
+        long applied;
+        do {
+            applied = entry.generation().get();
+            if (applied >= generation.id()) {
+                return false;
+            }
+        } while (!entry.generation().compareAndSet(applied, generation.id()));
+        applier.accept(generation.state(), entry.change());
+        return true;
+    }
+
+    /**
+     * Resultado de la consulta de reconciliación y qué cambios ya incluye según su marca
+     */
+    public record Snapshot<S, C>(S state, Predicate<C> includes) {}
+
+    @FunctionalInterface
+    public interface Listener<S> {
+        void onReplaced(S previous, S fresh, int replayed);
+    }
+
+    private record Generation<S, C>(long id, S state, Predicate<C> includes) {}
+
+    private record Entry<C>(C change, AtomicLong generation) {
+        private Entry(C change) {
+            this(change, new AtomicLong());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Caché de un único valor calculado (snapshot) con TTL y refresco anticipado en segundo plano.
+ * Los llamadores concurrentes comparten un solo cálculo en curso; si el recálculo falla o excede
+ * el presupuesto de latencia se entrega el último snapshot marcado como obsoleto.
+ */
+@Slf4j
+public class SnapshotCache<T> {
+
+    private final String name;
+    private final Supplier<Mono<T>> loader;
+    private final Duration ttl;
+    private final Duration refreshAhead;
+    private final Duration latencyBudget;
+
+    private final AtomicReference<Snapshot<T>> current = new AtomicReference<>();
+    private final AtomicReference<Mono<Snapshot<T>>> inFlight = new AtomicReference<>();
+
+    public SnapshotCache(String name, Supplier<Mono<T>> loader,
+                         Duration ttl, Duration refreshAhead, Duration latencyBudget) {
+        this.name = name;
+        this.loader = loader;
+        this.ttl = ttl;
+        this.refreshAhead = refreshAhead;
+        this.latencyBudget = latencyBudget;
+    }
+
+    public Mono<Snapshot<T>> get() {
+        return Mono.defer(() -> {
+            Snapshot<T> snapshot = current.get();
+            if (snapshot == null) {
+                return refresh(); // sin snapshot previo no hay nada que servir: se espera el cálculo
+            }
+
+            Duration age = snapshot.age();
+            if (age.compareTo(ttl) < 0) {
+                if (age.compareTo(ttl.minus(refreshAhead)) >= 0) {
+                    refreshInBackground();
+                }
+                return Mono.just(snapshot);
+            }
+
+            return refresh()
+                    .timeout(latencyBudget)
+                    .onErrorResume(error -> {
+                        log.warn("Serving stale {} snapshot ({}s old): {}",
+                                name, snapshot.age().toSeconds(), error.toString());
+                        return Mono.just(snapshot.asStale());
+                    });
+        });
+    }
+
+    private void refreshInBackground() {
+        if (inFlight.get() == null) {
+            refresh().subscribe(
+                    snapshot -> log.debug("{} snapshot refreshed ahead of expiry", name),
+                    error -> log.warn("Background refresh of {} snapshot failed: {}", name, error.toString())
+            );
+        }
+    }
+
+    /**
+     * Devuelve el cálculo en curso o inicia uno nuevo. El cálculo no se cancela si un llamador
+     * abandona por timeout, de modo que termina y actualiza el snapshot para los siguientes.
+     */
+    private Mono<Snapshot<T>> refresh() {
+        while (true) {
+            Mono<Snapshot<T>> running = inFlight.get();
+            if (running != null) {
+                return running;
+            }
+
+            Mono<Snapshot<T>> computation = Mono.defer(loader)
+                    .map(value -> new Snapshot<>(value, LocalDateTime.now(), false))
+                    .doOnNext(current::set)
+                    .doOnError(error -> log.error("Error computing {} snapshot", name, error))
+                    .doFinally(signal -> inFlight.set(null))
+                    .cache();
+
+            if (inFlight.compareAndSet(null, computation)) {
+                return computation;
+            }
+        }
+    }
+
+    public record Snapshot<T>(
+            T value,
+            LocalDateTime generatedAt,
+            boolean stale
+    ) {
+
+        public Duration age() {
+            return Duration.between(generatedAt, LocalDateTime.now());
+        }
+
+        private Snapshot<T> asStale() {
+            return new Snapshot<>(value, generatedAt, true);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepositoryCustom;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Disponible por (producto, almacén) en memoria, sin bloqueos, delante del UPDATE condicional
+ * de reserva. Descarta sin ir a la base de datos las reservas que no pueden cumplirse, de modo
+ * que un SKU muy disputado no acumule conexiones esperando el bloqueo de su fila. No es la fuente
+ * de verdad: la base de datos decide siempre y el contador se recarga al expirar o cuando la base
+ * de datos rechaza una reserva que la memoria había aceptado.
+ */
+@Component
+@Slf4j
+public class StockAvailabilityGate {
+
+    private final InventoryRepositoryCustom inventoryRepositoryCustom;
+    private final long ttlNanos;
+
+    private final Map<StockKey, Mono<Counter>> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder loads = new LongAdder();
+
+    public StockAvailabilityGate(InventoryRepositoryCustom inventoryRepositoryCustom,
+                                 @Value("${inventory.reservations.counter-ttl-seconds:30}") long ttlSeconds) {
+        this.inventoryRepositoryCustom = inventoryRepositoryCustom;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+    }
+
+    /**
+     * Descuenta la cantidad del disponible en memoria; false si no alcanza o el inventario no existe
+     */
+    public Mono<Boolean> tryAcquire(Long productId, Long warehouseId, int quantity) {
+        return counter(new StockKey(productId, warehouseId))
+                .map(counter -> counter.tryAcquire(quantity))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Suma (o resta) al disponible en memoria: reservas liberadas o vencidas y movimientos de stock
+     * ya confirmados. Si la clave no está cargada no hace nada; la próxima carga ya los incluye.
+     */
+    public void adjust(Long productId, Long warehouseId, int quantity) {
+        Mono<Counter> cached = counters.get(new StockKey(productId, warehouseId));
+        if (cached != null) {
+            cached.subscribe(counter -> counter.available.addAndGet(quantity));
+        }
+    }
+
+    /**
+     * Descarta el contador; la siguiente reserva lo recarga desde la base de datos
+     */
+    public void invalidate(Long productId, Long warehouseId) {
+        counters.remove(new StockKey(productId, warehouseId));
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    private Mono<Counter> counter(StockKey key) {
+        Mono<Counter> cached = counters.computeIfAbsent(key, this::load);
+        return cached.flatMap(counter -> {
+            if (System.nanoTime() - counter.loadedAt < ttlNanos) {
+                return Mono.just(counter);
+            }
+            counters.remove(key, cached);
+            return counters.computeIfAbsent(key, this::load);
+        });
+    }
+
+    // Una sola carga por clave aunque lleguen muchas reservas a la vez (Mono.cache)
+    private Mono<Counter> load(StockKey key) {
+        return inventoryRepositoryCustom.findAvailableStock(key.productId(), key.warehouseId())
+                .map(available -> {
+                    loads.increment();
+                    return new Counter(new AtomicInteger(available), System.nanoTime());
+                })
+                .doOnError(error -> counters.remove(key))
+                .cache(counter -> Duration.ofNanos(Long.MAX_VALUE), error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    private record StockKey(Long productId, Long warehouseId) {}
+
+    private record Counter(AtomicInteger available, long loadedAt) {
+
+        private boolean tryAcquire(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
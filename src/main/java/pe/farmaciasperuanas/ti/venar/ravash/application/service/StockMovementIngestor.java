@@ -0,0 +1,205 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementOutcome;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepositoryCustom;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Única vía de escritura de movimientos de stock. Agrupa los movimientos (MicroBatcher) y los
+ * aplica en una sola transacción, sumando los deltas por (producto, almacén) para que un SKU con
+ * muchas ventas seguidas se actualice una sola vez. Cada llamador recibe la confirmación cuando su
+ * lote ya está confirmado en base de datos, o un {@link RejectedMovementException} si su grupo
+ * no se aplicó (sin inventario, o una salida sin disponible suficiente en la fila bloqueada).
+ * Las salidas llegan ya descontadas del disponible en memoria por quien las envía; aquí solo se
+ * suman las entradas. La cola está acotada: si se llena, el llamador espera a que se libere
+ * espacio y, pasado el tiempo máximo de espera, recibe un error.
+ */
+@Component
+@Slf4j
+public class StockMovementIngestor {
+
+    private static final Duration QUEUE_RETRY_DELAY = Duration.ofMillis(10);
+
+    private final InventoryRepositoryCustom inventoryRepositoryCustom;
+    private final StockAvailabilityGate stockAvailabilityGate;
+    private final InventoryValuation inventoryValuation;
+    private final long maxQueueRetries;
+    private final MicroBatcher<List<StockDelta>, Void> batcher;
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong movementsFlushed = new AtomicLong();
+    private final AtomicLong movementsSkipped = new AtomicLong();
+    private final AtomicLong rowsUpdated = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private final AtomicLong slowestFlushNanos = new AtomicLong();
+
+    public StockMovementIngestor(InventoryRepositoryCustom inventoryRepositoryCustom,
+                                 StockAvailabilityGate stockAvailabilityGate,
+                                 InventoryValuation inventoryValuation,
+                                 @Value("${inventory.ingestion.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${inventory.ingestion.window-ms:20}") long windowMs,
+                                 @Value("${inventory.ingestion.capacity:10000}") int capacity,
+                                 @Value("${inventory.ingestion.max-wait-ms:2000}") long maxWaitMs) {
+        this.inventoryRepositoryCustom = inventoryRepositoryCustom;
+        this.stockAvailabilityGate = stockAvailabilityGate;
+        this.inventoryValuation = inventoryValuation;
+        this.maxQueueRetries = Math.max(1, maxWaitMs / QUEUE_RETRY_DELAY.toMillis());
+        this.batcher = new MicroBatcher<>("stock movement ingestor", maxBatchSize, Duration.ofMillis(windowMs),
+                1, capacity, this::flush);
+    }
+
+    @PostConstruct
+    public void start() {
+        batcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        batcher.stop();
+    }
+
+    /**
+     * Encola el movimiento; completa cuando el lote que lo contiene se ha confirmado
+     */
+    public Mono<Void> submit(StockDelta delta) {
+        return submitAll(List.of(delta));
+    }
+
+    /**
+     * Encola movimientos que deben aplicarse juntos (p. ej. salida y entrada de una transferencia);
+     * siempre viajan en el mismo lote y, por tanto, en la misma transacción
+     */
+    public Mono<Void> submitAll(List<StockDelta> deltas) {
+        return batcher.submit(deltas)
+                .retryWhen(Retry.fixedDelay(maxQueueRetries, QUEUE_RETRY_DELAY)
+                        .filter(MicroBatcher.QueueFullException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> {
+                            rejected.incrementAndGet();
+                            return new RuntimeException("Cola de movimientos de stock saturada, reintente");
+                        }));
+    }
+
+    public Stats getStats() {
+        long count = flushes.get();
+        long movements = movementsFlushed.get();
+        return new Stats(
+                batcher.getPending(),
+                batcher.getMaxPending(),
+                batcher.getCapacity(),
+                batcher.getSubmitted(),
+                rejected.get(),
+                count,
+                failedFlushes.get(),
+                movements,
+                movementsSkipped.get(),
+                rowsUpdated.get(),
+                count == 0 ? 0 : (double) movements / count,
+                rowsUpdated.get() == 0 ? 0 : (double) movements / rowsUpdated.get(),
+                count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(flushNanos.get()) / 1000.0 / count,
+                TimeUnit.NANOSECONDS.toMillis(slowestFlushNanos.get()),
+                batcher.getRestarts()
+        );
+    }
+
+    private Mono<Void> flush(List<MicroBatcher.Request<List<StockDelta>, Void>> batch) {
+        long startedAt = System.nanoTime();
+        List<List<StockDelta>> groups = batch.stream().map(MicroBatcher.Request::item).toList();
+        int size = groups.stream().mapToInt(List::size).sum();
+
+        return inventoryRepositoryCustom.applyDeltas(groups)
+                .doOnNext(result -> {
+                    List<MovementOutcome> outcomes = result.getOutcomes();
+                    List<StockDelta> applied = new ArrayList<>();
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (outcomes.get(i) == MovementOutcome.APPLIED) {
+                            applied.addAll(groups.get(i));
+                        }
+                    }
+                    record(size, applied, System.nanoTime() - startedAt);
+                    // Solo lo que llegó a base de datos; las salidas ya se descontaron al enviarse
+                    applied.stream()
+                            .filter(delta -> delta.availableChange() > 0)
+                            .forEach(delta -> stockAvailabilityGate.adjust(delta.getProductId(),
+                                    delta.getWarehouseId(), delta.availableChange()));
+                    inventoryValuation.onStockDeltas(applied, result);
+                    for (int i = 0; i < batch.size(); i++) {
+                        MicroBatcher.Request<List<StockDelta>, Void> request = batch.get(i);
+                        if (outcomes.get(i) == MovementOutcome.APPLIED) {
+                            request.complete(null);
+                        } else {
+                            request.fail(new RejectedMovementException(outcomes.get(i), request.item()));
+                        }
+                    }
+                })
+                .doOnError(error -> failedFlushes.incrementAndGet())
+                .then();
+    }
+
+    private void record(int batchSize, List<StockDelta> applied, long elapsedNanos) {
+        long rows = applied.stream().map(delta -> List.of(delta.getProductId(), delta.getWarehouseId()))
+                .distinct()
+                .count();
+        long count = flushes.incrementAndGet();
+        movementsFlushed.addAndGet(applied.size());
+        movementsSkipped.addAndGet(batchSize - applied.size());
+        rowsUpdated.addAndGet(rows);
+        flushNanos.addAndGet(elapsedNanos);
+        slowestFlushNanos.accumulateAndGet(elapsedNanos, Math::max);
+        log.debug("Stock movement batch #{} flushed: movements={}, skipped={}, rows={}, latency={}ms", count,
+                applied.size(), batchSize - applied.size(), rows, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    /**
+     * El grupo de movimientos no se aplicó; {@link #getOutcome()} indica por qué
+     */
+    public static final class RejectedMovementException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MovementOutcome outcome;
+
+        private RejectedMovementException(MovementOutcome outcome, List<StockDelta> deltas) {
+            super((outcome == MovementOutcome.NO_INVENTORY ? "Inventario no encontrado" : "Stock insuficiente")
+                    + " para el movimiento del producto " + deltas.get(0).getProductId()
+                    + " en almacén " + deltas.get(0).getWarehouseId());
+            this.outcome = outcome;
+        }
+
+        public MovementOutcome getOutcome() {
+            return outcome;
+        }
+    }
+
+    public record Stats(
+            int queueDepth,
+            int maxQueueDepth,
+            int capacity,
+            long submitted,
+            long rejected,
+            long flushes,
+            long failedFlushes,
+            long movementsFlushed,
+            long movementsSkipped,
+            long rowsUpdated,
+            double averageBatchSize,
+            double coalescingRatio,
+            double averageFlushMillis,
+            long slowestFlushMillis,
+            long restarts
+    ) {}
+}
@@ -0,0 +1,275 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockReservationDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ReservationStatus;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockReservation;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepositoryCustom;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.StockReservationRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Reservas de stock: reservar, confirmar, liberar y vencer. La reserva pasa primero por el
+ * disponible en memoria (StockAvailabilityGate) y luego por un UPDATE condicional sobre
+ * inventory.reserved_stock, que es el que garantiza que nunca se reserve más de lo disponible.
+ * Los cambios de estado son condicionales (solo desde PENDING), así que confirmar, liberar y
+ * vencer la misma reserva a la vez solo aplica uno de ellos.
+ */
+@Service
+@Slf4j
+public class StockReservationService {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final InventoryRepositoryCustom inventoryRepositoryCustom;
+    private final StockAvailabilityGate stockAvailabilityGate;
+    private final StockMovementIngestor stockMovementIngestor;
+    private final TransactionalOperator transactionalOperator;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final int expiryBatchSize;
+
+    private final AtomicBoolean expiring = new AtomicBoolean();
+
+    private final LongAdder reserved = new LongAdder();
+    private final LongAdder rejectedInMemory = new LongAdder();
+    private final LongAdder rejectedByDatabase = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder released = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public StockReservationService(StockReservationRepository stockReservationRepository,
+                                   InventoryRepositoryCustom inventoryRepositoryCustom,
+                                   StockAvailabilityGate stockAvailabilityGate,
+                                   StockMovementIngestor stockMovementIngestor,
+                                   TransactionalOperator transactionalOperator,
+                                   @Value("${inventory.reservations.default-ttl-seconds:900}") long defaultTtlSeconds,
+                                   @Value("${inventory.reservations.max-ttl-seconds:86400}") long maxTtlSeconds,
+                                   @Value("${inventory.reservations.expiry-batch-size:500}") int expiryBatchSize) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.inventoryRepositoryCustom = inventoryRepositoryCustom;
+        this.stockAvailabilityGate = stockAvailabilityGate;
+        this.stockMovementIngestor = stockMovementIngestor;
+        this.transactionalOperator = transactionalOperator;
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.maxTtl = Duration.ofSeconds(maxTtlSeconds);
+        this.expiryBatchSize = expiryBatchSize;
+    }
+
+    public Mono<StockReservationDTO> reserve(StockReservationDTO request) {
+        Long productId = request.getProductId();
+        Long warehouseId = request.getWarehouseId();
+        int quantity = request.getQuantity();
+        Duration ttl = request.getTtlSeconds() != null
+                ? Duration.ofSeconds(Math.min(request.getTtlSeconds(), maxTtl.getSeconds()))
+                : defaultTtl;
+
+        return stockAvailabilityGate.tryAcquire(productId, warehouseId, quantity)
+                .flatMap(acquired -> {
+                    if (!acquired) {
+                        rejectedInMemory.increment();
+                        return insufficientStock(productId, warehouseId);
+                    }
+
+                    // Unidades tomadas del disponible en memoria que aún no se confirmaron ni devolvieron
+                    AtomicBoolean held = new AtomicBoolean(true);
+                    LocalDateTime now = LocalDateTime.now();
+                    StockReservation reservation = StockReservation.builder()
+                            .productId(productId)
+                            .warehouseId(warehouseId)
+                            .quantity(quantity)
+                            .status(ReservationStatus.PENDING)
+                            .reference(request.getReference())
+                            .expiresAt(now.plus(ttl))
+                            .createdAt(now)
+                            .build();
+
+                    return inventoryRepositoryCustom.reserveStock(productId, warehouseId, quantity)
+                            .flatMap(ok -> ok
+                                    ? stockReservationRepository.save(reservation)
+                                    : Mono.empty())
+                            .as(transactionalOperator::transactional)
+                            .doOnNext(saved -> {
+                                held.set(false);
+                                reserved.increment();
+                            })
+                            .doOnError(error -> {
+                                if (held.compareAndSet(true, false)) {
+                                    stockAvailabilityGate.adjust(productId, warehouseId, quantity);
+                                }
+                            })
+                            // El cliente se desconectó antes de terminar: la transacción se revierte
+                            .doOnCancel(() -> {
+                                if (held.compareAndSet(true, false)) {
+                                    stockAvailabilityGate.adjust(productId, warehouseId, quantity);
+                                }
+                            })
+                            .switchIfEmpty(Mono.defer(() -> {
+                                // El disponible en memoria estaba desfasado: se descarta y se recarga
+                                held.set(false);
+                                rejectedByDatabase.increment();
+                                stockAvailabilityGate.invalidate(productId, warehouseId);
+                                return insufficientStock(productId, warehouseId);
+                            }));
+                })
+                .map(this::toDTO);
+    }
+
+    /**
+     * Convierte la reserva en salida de stock: la marca CONFIRMED y envía al ingestor la venta, que
+     * descuenta current_stock y reserved_stock a la vez. Si la venta no se aplica (la reserva ya no
+     * está en reserved_stock o el inventario no existe), la reserva vuelve a PENDING y falla.
+     */
+    public Mono<StockReservationDTO> confirm(Long id) {
+        return close(id, ReservationStatus.CONFIRMED, reservation -> Mono.empty())
+                .flatMap(reservation -> stockMovementIngestor.submit(toSale(reservation))
+                        .thenReturn(reservation)
+                        .onErrorResume(error -> stockReservationRepository.reopenConfirmed(reservation.getId())
+                                .then(Mono.error(error))))
+                .doOnNext(reservation -> confirmed.increment())
+                .map(this::toDTO);
+    }
+
+    public Mono<StockReservationDTO> release(Long id) {
+        return close(id, ReservationStatus.RELEASED, this::returnToAvailable)
+                .doOnNext(reservation -> released.increment())
+                .map(this::toDTO);
+    }
+
+    public Mono<StockReservationDTO> getReservation(Long id) {
+        return stockReservationRepository.findById(id)
+                .switchIfEmpty(Mono.error(new RuntimeException("Reserva no encontrada")))
+                .map(this::toDTO);
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservations.expiry-check-ms:30000}",
+            initialDelayString = "${inventory.reservations.expiry-check-ms:30000}")
+    public void runExpiration() {
+        if (!expiring.compareAndSet(false, true)) {
+            log.warn("Reservation expiration already running, skipping");
+            return;
+        }
+        expireReservations()
+                .doFinally(signal -> expiring.set(false))
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.info("Expired {} stock reservations", count);
+                            }
+                        },
+                        error -> log.error("Error expiring stock reservations", error)
+                );
+    }
+
+    /**
+     * Vence las reservas pendientes cuyo plazo ya pasó, por lotes, y devuelve su stock al disponible
+     */
+    public Mono<Long> expireReservations() {
+        return stockReservationRepository.findExpired(LocalDateTime.now(), expiryBatchSize)
+                .concatMap(reservation -> closePending(reservation, ReservationStatus.EXPIRED, this::returnToAvailable)
+                        .onErrorResume(error -> {
+                            log.error("Error expiring reservation {}", reservation.getId(), error);
+                            return Mono.empty();
+                        }))
+                .doOnNext(reservation -> expired.increment())
+                .count();
+    }
+
+    public Stats getStats() {
+        return new Stats(
+                reserved.sum(),
+                rejectedInMemory.sum(),
+                rejectedByDatabase.sum(),
+                confirmed.sum(),
+                released.sum(),
+                expired.sum(),
+                stockAvailabilityGate.size(),
+                stockAvailabilityGate.getLoads()
+        );
+    }
+
+    private Mono<StockReservation> close(Long id, ReservationStatus status,
+                                         Function<StockReservation, Mono<Void>> apply) {
+        return stockReservationRepository.findById(id)
+                .switchIfEmpty(Mono.error(new RuntimeException("Reserva no encontrada")))
+                .flatMap(reservation -> closePending(reservation, status, apply)
+                        .switchIfEmpty(Mono.error(new RuntimeException(
+                                "La reserva ya no está pendiente: " + reservation.getStatus()))));
+    }
+
+    // Cambio de estado condicional + efecto sobre inventario en la misma transacción
+    private Mono<StockReservation> closePending(StockReservation reservation, ReservationStatus status,
+                                                Function<StockReservation, Mono<Void>> apply) {
+        return stockReservationRepository.closePending(reservation.getId(), status.name())
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> apply.apply(reservation).thenReturn(reservation))
+                .as(transactionalOperator::transactional)
+                .doOnNext(closed -> {
+                    closed.setStatus(status);
+                    closed.setUpdatedAt(LocalDateTime.now());
+                    if (status != ReservationStatus.CONFIRMED) {
+                        stockAvailabilityGate.adjust(closed.getProductId(), closed.getWarehouseId(),
+                                closed.getQuantity());
+                    }
+                });
+    }
+
+    private StockDelta toSale(StockReservation reservation) {
+        return StockDelta.builder()
+                .productId(reservation.getProductId())
+                .warehouseId(reservation.getWarehouseId())
+                .quantity(MovementType.SALIDA.signedDelta(reservation.getQuantity()))
+                .reservedQuantity(reservation.getQuantity())
+                .movementType(MovementType.SALIDA)
+                .reference(reservation.getReference() != null
+                        ? reservation.getReference() : "RESERVA-" + reservation.getId())
+                .build();
+    }
+
+    private Mono<Void> returnToAvailable(StockReservation reservation) {
+        return inventoryRepositoryCustom.releaseReservedStock(reservation.getProductId(),
+                        reservation.getWarehouseId(), reservation.getQuantity())
+                .then();
+    }
+
+    private <T> Mono<T> insufficientStock(Long productId, Long warehouseId) {
+        return Mono.error(new RuntimeException("Stock insuficiente para reservar el producto "
+                + productId + " en almacén " + warehouseId));
+    }
+
+    private StockReservationDTO toDTO(StockReservation reservation) {
+        return StockReservationDTO.builder()
+                .id(reservation.getId())
+                .productId(reservation.getProductId())
+                .warehouseId(reservation.getWarehouseId())
+                .quantity(reservation.getQuantity())
+                .reference(reservation.getReference())
+                .status(reservation.getStatus())
+                .expiresAt(reservation.getExpiresAt())
+                .createdAt(reservation.getCreatedAt())
+                .updatedAt(reservation.getUpdatedAt())
+                .build();
+    }
+
+    public record Stats(
+            long reserved,
+            long rejectedInMemory,
+            long rejectedByDatabase,
+            long confirmed,
+            long released,
+            long expired,
+            int trackedKeys,
+            long counterLoads
+    ) {}
+}
@@ -0,0 +1,46 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.Builder;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AlertEvent {
+
+    private String event; // SNAPSHOT, CREATED, RESOLVED
+    private Long alertId;
+    private Alert alert;
+    private String resolvedBy;
+    private LocalDateTime occurredAt;
+
+    public static AlertEvent snapshot(Alert alert) {
+        return of("SNAPSHOT", alert);
+    }
+
+    public static AlertEvent created(Alert alert) {
+        return of("CREATED", alert);
+    }
+
+    public static AlertEvent resolved(Long alertId, String resolvedBy) {
+        return AlertEvent.builder()
+                .event("RESOLVED")
+                .alertId(alertId)
+                .resolvedBy(resolvedBy)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static AlertEvent of(String event, Alert alert) {
+        return AlertEvent.builder()
+                .event(event)
+                .alertId(alert.getId())
+                .alert(alert)
+                .occurredAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import lombok.Data;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Secciones del dashboard que cambiaron después de una versión dada. En {@code changes}
+ * solo vienen llenos los campos de las secciones listadas en {@code changedSections}.
+ * Si la versión pedida es de otro epoch (otro arranque u otra instancia) vienen todas las secciones.
+ */
+@Data
+@Builder
+public class DashboardChangesDTO {
+
+    private Long since;
+    private Long version;
+    private String epoch;
+    private List<String> changedSections; // METRICS, ALERTS, CRITICAL_PRODUCTS, TRENDS, PREDICTIONS
+    private DashboardDTO changes;
+}
@@ -3,11 +3,12 @@ package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
 import lombok.Data;
 import lombok.Builder;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class DashboardDTO {
 
     // Métricas generales
@@ -32,4 +33,12 @@ public class DashboardDTO {
 
     // Predicciones destacadas
     private List<StockPredictionDTO> urgentPredictions;
+
+    // Versión del contenido (cambia solo cuando cambia alguna sección) y frescura del snapshot.
+    // La versión solo es comparable dentro del mismo epoch (arranque de la instancia que la numeró)
+    private Long version;
+    private String epoch;
+    private LocalDateTime generatedAt;
+    private Long snapshotAgeSeconds;
+    private Boolean stale;
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.Builder;
+
+/**
+ * Evento del reporte de importación masiva: error de una fila, avance por lote o resumen final.
+ */
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductImportEvent {
+
+    private String event; // ERROR, PROGRESS, SUMMARY
+
+    // ERROR
+    private Long line;
+    private String sku;
+    private String message;
+
+    // PROGRESS / SUMMARY
+    private Long processed;
+    private Long inserted;
+    private Long updated;
+    private Long failed;
+}
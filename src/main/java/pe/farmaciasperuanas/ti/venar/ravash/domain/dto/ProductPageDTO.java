@@ -0,0 +1,18 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import lombok.Data;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * Página de productos por keyset. {@code nextCursor} es opaco y solo viene cuando hay más resultados.
+ */
+@Data
+@Builder
+public class ProductPageDTO {
+
+    private List<ProductDTO> items;
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,16 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import lombok.Data;
+import lombok.Builder;
+
+@Data
+@Builder
+public class ProductSearchHit {
+
+    private Long id;
+    private String sku;
+    private String name;
+    private String brand;
+    private String category;
+    private Integer score; // relevancia: SKU exacto > nombre > marca > categoría
+}
@@ -0,0 +1,33 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementDTO {
+
+    @NotNull(message = "Producto es requerido")
+    private Long productId;
+
+    @NotNull(message = "Almacén es requerido")
+    private Long warehouseId;
+
+    @NotNull(message = "Tipo de movimiento es requerido")
+    private MovementType type;
+
+    @NotNull(message = "Cantidad es requerida")
+    private Integer quantity; // positiva; con signo solo para AJUSTE
+
+    @Size(max = 100)
+    private String reference; // guía, boleta, nota de crédito, etc
+
+    private Long targetWarehouseId; // almacén de destino, solo para TRANSFERENCIA
+}
@@ -0,0 +1,42 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ReservationStatus;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReservationDTO {
+
+    private Long id;
+
+    @NotNull(message = "Producto es requerido")
+    private Long productId;
+
+    @NotNull(message = "Almacén es requerido")
+    private Long warehouseId;
+
+    @NotNull(message = "Cantidad es requerida")
+    @Positive
+    private Integer quantity;
+
+    @Size(max = 100)
+    private String reference; // pedido, ticket, etc
+
+    @Positive
+    private Long ttlSeconds; // vigencia de la reserva; por defecto inventory.reservations.default-ttl-seconds
+
+    private ReservationStatus status;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
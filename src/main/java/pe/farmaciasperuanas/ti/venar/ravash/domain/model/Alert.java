@@ -21,11 +21,13 @@ public class Alert {
 
     private Long productId;
     private Long warehouseId;
+    private String batchNumber;
 
     private String type; // LOW_STOCK, OVERSTOCK, EXPIRING, ANOMALY
     private String severity; // HIGH, MEDIUM, LOW
     private String message;
     private String recommendation;
+    private String fingerprint; // type:productId:warehouseId:batchNumber (deduplicación)
 
     private Boolean resolved;
     private LocalDateTime resolvedAt;
@@ -0,0 +1,41 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alerta resuelta movida al histórico (tabla particionada por mes de creación).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("alerts_archive")
+public class AlertArchive {
+
+    @Id
+    private Long id;
+
+    private Long productId;
+    private Long warehouseId;
+    private String batchNumber;
+
+    private String type;
+    private String severity;
+    private String message;
+    private String recommendation;
+    private String fingerprint;
+
+    private LocalDateTime resolvedAt;
+    private String resolvedBy;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime scheduledReview;
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,25 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección del número de alertas abiertas por severidad y tipo. Cada fila lleva también el
+ * mayor id de alerta y la hora de la base de datos en que se leyó el conteo.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AlertCount {
+
+    private String severity;
+    private String type;
+    private Long total;
+    private Long maxId;
+    private LocalDateTime takenAt;
+}
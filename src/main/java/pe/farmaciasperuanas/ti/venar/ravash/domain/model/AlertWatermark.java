@@ -0,0 +1,24 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("alert_watermarks")
+public class AlertWatermark {
+
+    @Id
+    private String name; // proceso que avanza la marca, p.ej. STOCK_LEVEL
+
+    private LocalDateTime watermark; // último inventory.last_movement evaluado
+    private LocalDateTime updatedAt;
+}
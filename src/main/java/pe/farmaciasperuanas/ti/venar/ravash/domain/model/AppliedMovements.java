@@ -0,0 +1,28 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado de aplicar un lote de grupos de movimientos: el de cada grupo, en orden, y el costo y
+ * la categoría de cada producto leídos en la misma transacción. {@code appliedAt} es la hora de la
+ * base de datos al terminar de aplicar el lote, antes del commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AppliedMovements {
+
+    private List<MovementOutcome> outcomes;
+    private Map<Long, BigDecimal> costPrices;
+    private Map<Long, String> categories;
+    private LocalDateTime appliedAt;
+}
@@ -0,0 +1,28 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de un lote de inventario próximo a vencer con los datos del producto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExpiringBatch {
+
+    private Long inventoryId;
+    private Long productId;
+    private Long warehouseId;
+
+    private String sku;
+    private String productName;
+
+    private String batchNumber;
+    private LocalDateTime expirationDate;
+}
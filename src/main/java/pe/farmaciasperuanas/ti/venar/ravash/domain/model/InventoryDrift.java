@@ -0,0 +1,21 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Diferencia entre current_stock y el stock derivado del libro de eventos (instantánea + cola).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryDrift {
+
+    private Long productId;
+    private Long warehouseId;
+    private Integer currentStock;
+    private Long expectedStock;
+}
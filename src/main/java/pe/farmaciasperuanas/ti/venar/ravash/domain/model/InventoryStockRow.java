@@ -0,0 +1,37 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila de inventario unida a su producto y al stock agregado del producto,
+ * base de la evaluación de reglas de alerta en una sola pasada.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryStockRow {
+
+    private Long inventoryId;
+    private Long productId;
+    private Long warehouseId;
+
+    private String sku;
+    private String productName;
+    private Integer minStock;
+    private Integer maxStock;
+
+    private String batchNumber;
+    private LocalDateTime expirationDate;
+    private Integer currentStock;
+
+    // Agregados por producto (funciones de ventana)
+    private Integer totalStock;
+    private Integer maxRowStock;
+    private Integer productRow; // 1 en la primera fila de cada producto
+}
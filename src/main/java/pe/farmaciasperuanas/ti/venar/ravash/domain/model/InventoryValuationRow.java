@@ -0,0 +1,24 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección del valor de inventario a costo, en céntimos, por almacén y categoría, con la hora de
+ * la base de datos en que se leyó.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class InventoryValuationRow {
+
+    private Long warehouseId;
+    private String category;
+    private Long valueCents;
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,13 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+/**
+ * Resultado de aplicar un grupo de movimientos de stock (todos o ninguno).
+ * NO_INVENTORY: alguna clave (producto, almacén) no tiene inventario.
+ * INSUFFICIENT_STOCK: alguna salida dejaría current_stock por debajo de reserved_stock,
+ * o consumiría más reserva de la que hay.
+ */
+public enum MovementOutcome {
+    APPLIED,
+    NO_INVENTORY,
+    INSUFFICIENT_STOCK
+}
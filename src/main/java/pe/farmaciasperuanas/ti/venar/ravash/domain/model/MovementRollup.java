@@ -0,0 +1,27 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de un bucket de movimientos (hora o día) por tipo de movimiento.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MovementRollup {
+
+    private LocalDateTime bucketStart;
+    private Long warehouseId; // null cuando el bucket suma todos los almacenes
+    private String movementType;
+
+    private Long movements;
+    private Long units;
+    private BigDecimal amount;
+}
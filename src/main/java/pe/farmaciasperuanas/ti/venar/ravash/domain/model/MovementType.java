@@ -0,0 +1,36 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+/**
+ * Tipos de movimiento de stock. ENTRADA y DEVOLUCION suman stock, SALIDA resta
+ * y AJUSTE aplica la cantidad con su signo. TRANSFERENCIA resta en el almacén de origen
+ * y registra la entrada equivalente en el de destino.
+ */
+public enum MovementType {
+
+    ENTRADA("entradas"),
+    SALIDA("salidas"),
+    AJUSTE("ajustes"),
+    DEVOLUCION("devoluciones"),
+    TRANSFERENCIA("transferencias");
+
+    private final String label;
+
+    MovementType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Delta con signo a aplicar sobre current_stock para la cantidad informada
+     */
+    public int signedDelta(int quantity) {
+        return switch (this) {
+            case ENTRADA, DEVOLUCION -> Math.abs(quantity);
+            case SALIDA, TRANSFERENCIA -> -Math.abs(quantity);
+            case AJUSTE -> quantity;
+        };
+    }
+}
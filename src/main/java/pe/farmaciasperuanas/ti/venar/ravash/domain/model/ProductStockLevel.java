@@ -0,0 +1,36 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de stock agregado por producto (SUM(current_stock) GROUP BY product_id)
+ * junto con los umbrales mínimo y máximo del producto. Los datos descriptivos y la próxima
+ * fecha de vencimiento solo se llenan en las consultas de productos críticos.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductStockLevel {
+
+    private Long productId;
+    private String sku;
+    private String name;
+    private String description;
+    private String category;
+    private String brand;
+    private BigDecimal costPrice;
+    private BigDecimal salePrice;
+
+    private Integer minStock;
+    private Integer maxStock;
+
+    private Integer totalStock;
+    private LocalDateTime nextExpiration;
+}
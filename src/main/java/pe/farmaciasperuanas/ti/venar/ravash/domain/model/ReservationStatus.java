@@ -0,0 +1,12 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+/**
+ * Estados de una reserva de stock. Solo una reserva PENDING puede pasar a
+ * CONFIRMED (se descuenta el stock), RELEASED (cancelada) o EXPIRED (venció sin confirmarse).
+ */
+public enum ReservationStatus {
+    PENDING,
+    CONFIRMED,
+    RELEASED,
+    EXPIRED
+}
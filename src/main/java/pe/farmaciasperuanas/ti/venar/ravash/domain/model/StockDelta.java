@@ -0,0 +1,36 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Movimiento de stock pendiente de aplicar: delta con signo sobre current_stock
+ * y los datos con los que se registra en stock_movements. {@code reservedQuantity} son las
+ * unidades que el movimiento toma de reserved_stock (la venta que confirma una reserva).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockDelta {
+
+    private Long productId;
+    private Long warehouseId;
+    private Integer quantity;
+    private MovementType movementType;
+    private String reference;
+    private Integer reservedQuantity;
+
+    public int reservedUnits() {
+        return reservedQuantity != null ? reservedQuantity : 0;
+    }
+
+    /**
+     * Cambio sobre el disponible (current_stock - reserved_stock); negativo si el movimiento lo consume
+     */
+    public int availableChange() {
+        return quantity + reservedUnits();
+    }
+}
@@ -0,0 +1,32 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("stock_movements")
+public class StockMovement {
+
+    @Id
+    private Long id;
+
+    private Long productId;
+    private Long warehouseId;
+
+    private MovementType movementType;
+    private Integer quantity; // delta con signo aplicado a current_stock
+    private BigDecimal amount; // |quantity| * precio de venta
+    private String reference;
+
+    private LocalDateTime createdAt;
+}
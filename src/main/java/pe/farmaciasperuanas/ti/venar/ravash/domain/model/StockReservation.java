@@ -0,0 +1,32 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table("stock_reservations")
+public class StockReservation {
+
+    @Id
+    private Long id;
+
+    private Long productId;
+    private Long warehouseId;
+
+    private Integer quantity;
+    private ReservationStatus status;
+    private String reference; // pedido, ticket, etc
+
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
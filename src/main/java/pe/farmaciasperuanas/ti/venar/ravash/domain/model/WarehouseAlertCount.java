@@ -0,0 +1,20 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Proyección del número de alertas abiertas por almacén y severidad.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WarehouseAlertCount {
+
+    private Long warehouseId;
+    private String severity;
+    private Long total;
+}
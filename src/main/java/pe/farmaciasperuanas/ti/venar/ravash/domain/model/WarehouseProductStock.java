@@ -0,0 +1,37 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección del stock de un producto agregado dentro de un almacén
+ * (SUM(current_stock) GROUP BY warehouse_id, product_id) con los datos del producto.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WarehouseProductStock {
+
+    private Long warehouseId;
+    private String warehouseName;
+
+    private Long productId;
+    private String sku;
+    private String name;
+    private String category;
+    private String brand;
+    private BigDecimal costPrice;
+    private BigDecimal salePrice;
+    private Integer minStock;
+    private Integer maxStock;
+    private Boolean perishable;
+
+    private Integer totalStock;
+    private LocalDateTime nextExpiration;
+}
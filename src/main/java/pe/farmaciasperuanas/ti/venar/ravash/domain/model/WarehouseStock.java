@@ -0,0 +1,22 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección del stock de un producto en un almacén, con la hora de la base de datos en que se leyó.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WarehouseStock {
+
+    private Long warehouseId;
+    private Long stock;
+    private LocalDateTime readAt;
+}
@@ -0,0 +1,19 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertArchive;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface AlertArchiveRepository extends ReactiveCrudRepository<AlertArchive, Long> {
+
+    Flux<AlertArchive> findByCreatedAtBetweenOrderByCreatedAtDesc(LocalDateTime from, LocalDateTime to,
+                                                                  Pageable pageable);
+
+    Flux<AlertArchive> findByProductIdAndCreatedAtBetweenOrderByCreatedAtDesc(Long productId, LocalDateTime from,
+                                                                              LocalDateTime to, Pageable pageable);
+}
@@ -0,0 +1,19 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AlertArchiveRepositoryCustom {
+    Mono<List<Long>> findArchivableIds(LocalDateTime resolvedBefore, int limit);
+
+    Mono<Long> moveToArchive(List<Long> alertIds);
+
+    Flux<String> findPartitionNames();
+
+    Mono<LocalDateTime> findOldestCreatedAt();
+
+    Mono<Void> splitFuturePartition(String partitionDefinitions);
+}
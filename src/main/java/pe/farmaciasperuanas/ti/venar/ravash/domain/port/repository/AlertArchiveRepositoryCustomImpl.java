@@ -0,0 +1,76 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class AlertArchiveRepositoryCustomImpl implements AlertArchiveRepositoryCustom {
+
+    private static final String ARCHIVE_COLUMNS = "id, product_id, warehouse_id, batch_number, type, severity, " +
+            "message, recommendation, fingerprint, resolved_at, resolved_by, created_at, scheduled_review";
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<List<Long>> findArchivableIds(LocalDateTime resolvedBefore, int limit) {
+        return databaseClient.sql("SELECT id FROM alerts WHERE resolved = true AND resolved_at < :resolvedBefore " +
+                        "ORDER BY id LIMIT :limit")
+                .bind("resolvedBefore", resolvedBefore)
+                .bind("limit", limit)
+                .map(row -> row.get("id", Long.class))
+                .all()
+                .collectList();
+    }
+
+    /**
+     * Copia las alertas al histórico y las elimina de la tabla activa (debe ejecutarse en una transacción)
+     */
+    @Override
+    public Mono<Long> moveToArchive(List<Long> alertIds) {
+        return databaseClient.sql("INSERT INTO alerts_archive (" + ARCHIVE_COLUMNS + ", archived_at) " +
+                        "SELECT " + ARCHIVE_COLUMNS + ", CURRENT_TIMESTAMP FROM alerts WHERE id IN (:alertIds)")
+                .bind("alertIds", alertIds)
+                .fetch()
+                .rowsUpdated()
+                .then(databaseClient.sql("DELETE FROM alerts WHERE id IN (:alertIds)")
+                        .bind("alertIds", alertIds)
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    @Override
+    public Flux<String> findPartitionNames() {
+        return databaseClient.sql("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'alerts_archive' " +
+                        "ORDER BY PARTITION_ORDINAL_POSITION")
+                .map(row -> row.get("PARTITION_NAME", String.class))
+                .all();
+    }
+
+    /**
+     * Creación más antigua entre las alertas activas y las ya archivadas (vacío si no hay ninguna)
+     */
+    @Override
+    public Mono<LocalDateTime> findOldestCreatedAt() {
+        return databaseClient.sql("SELECT LEAST(COALESCE((SELECT MIN(created_at) FROM alerts), CURRENT_TIMESTAMP), " +
+                        "COALESCE((SELECT MIN(created_at) FROM alerts_archive), CURRENT_TIMESTAMP)) AS oldest")
+                .map(row -> row.get("oldest", LocalDateTime.class))
+                .one();
+    }
+
+    @Override
+    public Mono<Void> splitFuturePartition(String partitionDefinitions) {
+        return databaseClient.sql("ALTER TABLE alerts_archive REORGANIZE PARTITION p_future INTO (" +
+                        partitionDefinitions + ", PARTITION p_future VALUES LESS THAN (MAXVALUE))")
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+}
@@ -1,13 +1,17 @@
 package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
 
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.r2dbc.repository.R2dbcRepository;
 import org.springframework.stereotype.Repository;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertCount;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.WarehouseAlertCount;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 @Repository
 public interface AlertRepository extends R2dbcRepository<Alert, Long> {
@@ -18,13 +22,29 @@ public interface AlertRepository extends R2dbcRepository<Alert, Long> {
 
     Flux<Alert> findBySeverityAndResolvedFalse(String severity);
 
+    Mono<Alert> findByFingerprintAndResolvedFalse(String fingerprint);
+
+    Flux<Alert> findByFingerprintInAndResolvedFalse(Collection<String> fingerprints);
+
     @Query("SELECT * FROM alerts WHERE created_at >= :since " +
             "ORDER BY FIELD(severity, 'HIGH', 'MEDIUM', 'LOW'), created_at DESC")
     Flux<Alert> findRecentAlerts(LocalDateTime since);
 
-    @Query("UPDATE alerts SET resolved = true, resolved_at = CURRENT_TIMESTAMP, " +
-            "resolved_by = :resolvedBy WHERE id = :alertId")
-    Mono<Void> resolveAlert(Long alertId, String resolvedBy);
+    @Modifying
+    @Query("UPDATE alerts SET resolved = true, resolved_at = CURRENT_TIMESTAMP(6), " +
+            "resolved_by = :resolvedBy WHERE id = :alertId AND resolved = false")
+    Mono<Integer> resolveAlert(Long alertId, String resolvedBy);
 
     Mono<Long> countByResolvedFalseAndSeverity(String severity);
+
+    // Una sola sentencia: el conteo, el mayor id y la hora salen de la misma lectura consistente
+    @Query("SELECT a.severity, a.type, COUNT(a.id) AS total, m.max_id, m.taken_at " +
+            "FROM (SELECT COALESCE(MAX(id), 0) AS max_id, NOW(6) AS taken_at FROM alerts) m " +
+            "LEFT JOIN alerts a ON a.resolved = false " +
+            "GROUP BY a.severity, a.type, m.max_id, m.taken_at")
+    Flux<AlertCount> countOpenBySeverityAndType();
+
+    @Query("SELECT warehouse_id, severity, COUNT(*) AS total FROM alerts " +
+            "WHERE resolved = false AND warehouse_id IS NOT NULL GROUP BY warehouse_id, severity")
+    Flux<WarehouseAlertCount> countOpenByWarehouseAndSeverity();
 }
\ No newline at end of file
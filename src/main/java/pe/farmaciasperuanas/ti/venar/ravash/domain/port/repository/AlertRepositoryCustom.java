@@ -0,0 +1,10 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface AlertRepositoryCustom {
+    Mono<Long> insertAll(List<Alert> alerts);
+}
@@ -0,0 +1,60 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.StringJoiner;
+
+@Repository
+@RequiredArgsConstructor
+public class AlertRepositoryCustomImpl implements AlertRepositoryCustom {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * INSERT multi-fila; las huellas ya abiertas se ignoran gracias a uk_alerts_open_fingerprint
+     */
+    @Override
+    public Mono<Long> insertAll(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < alerts.size(); i++) {
+            values.add(String.format("(:productId%1$d, :warehouseId%1$d, :batchNumber%1$d, :type%1$d, " +
+                    ":severity%1$d, :message%1$d, :recommendation%1$d, :fingerprint%1$d, false, " +
+                    ":createdAt%1$d, :scheduledReview%1$d)", i));
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("INSERT INTO alerts (product_id, warehouse_id, " +
+                "batch_number, type, severity, message, recommendation, fingerprint, resolved, created_at, " +
+                "scheduled_review) VALUES " + values + " ON DUPLICATE KEY UPDATE id = id");
+
+        for (int i = 0; i < alerts.size(); i++) {
+            Alert alert = alerts.get(i);
+            spec = bind(spec, "productId" + i, alert.getProductId(), Long.class);
+            spec = bind(spec, "warehouseId" + i, alert.getWarehouseId(), Long.class);
+            spec = bind(spec, "batchNumber" + i, alert.getBatchNumber(), String.class);
+            spec = bind(spec, "type" + i, alert.getType(), String.class);
+            spec = bind(spec, "severity" + i, alert.getSeverity(), String.class);
+            spec = bind(spec, "message" + i, alert.getMessage(), String.class);
+            spec = bind(spec, "recommendation" + i, alert.getRecommendation(), String.class);
+            spec = bind(spec, "fingerprint" + i, alert.getFingerprint(), String.class);
+            spec = bind(spec, "createdAt" + i, alert.getCreatedAt(), LocalDateTime.class);
+            spec = bind(spec, "scheduledReview" + i, alert.getScheduledReview(), LocalDateTime.class);
+        }
+
+        return spec.fetch().rowsUpdated();
+    }
+
+    private DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                   Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+}
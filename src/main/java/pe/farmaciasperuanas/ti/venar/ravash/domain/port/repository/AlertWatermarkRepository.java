@@ -0,0 +1,18 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertWatermark;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface AlertWatermarkRepository extends ReactiveCrudRepository<AlertWatermark, String> {
+
+    @Query("INSERT INTO alert_watermarks (name, watermark, updated_at) " +
+            "VALUES (:name, :watermark, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE watermark = VALUES(watermark), updated_at = CURRENT_TIMESTAMP")
+    Mono<Void> upsert(String name, LocalDateTime watermark);
+}
@@ -0,0 +1,24 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryDrift;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+public interface InventoryLedgerRepositoryCustom {
+
+    Mono<Long> findSnapshotWatermark();
+
+    Mono<Long> findMaxMovementId();
+
+    Mono<Long> accumulateSnapshots(long fromMovementId, long toMovementId, LocalDateTime takenAt);
+
+    Mono<Long> countMovementsAfter(long watermark);
+
+    Mono<Long> rebuildProjection(long watermark, LocalDateTime quietSince);
+
+    Flux<InventoryDrift> findDrift(long watermark, int limit);
+
+    Mono<Long> findStockAsOf(Long productId, Long warehouseId, LocalDateTime asOf);
+}
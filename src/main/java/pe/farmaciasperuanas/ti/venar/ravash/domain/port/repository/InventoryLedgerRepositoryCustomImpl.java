@@ -0,0 +1,135 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryDrift;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+@RequiredArgsConstructor
+public class InventoryLedgerRepositoryCustomImpl implements InventoryLedgerRepositoryCustom {
+
+    // Stock esperado por clave de inventario (i): instantánea + eventos posteriores al watermark
+    private static final String EXPECTED_STOCK = "COALESCE(s.stock, 0) + COALESCE(t.delta, 0)";
+    private static final String LEDGER_JOINS = "LEFT JOIN inventory_snapshots s " +
+            "ON s.product_id = i.product_id AND s.warehouse_id = i.warehouse_id " +
+            "LEFT JOIN (SELECT product_id, warehouse_id, SUM(quantity) AS delta FROM stock_movements " +
+            "WHERE id > :watermark GROUP BY product_id, warehouse_id) t " +
+            "ON t.product_id = i.product_id AND t.warehouse_id = i.warehouse_id";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+
+    @Override
+    public Mono<Long> findSnapshotWatermark() {
+        return databaseClient.sql("SELECT COALESCE(MAX(to_movement_id), 0) AS watermark FROM inventory_snapshot_runs")
+                .map(row -> row.get("watermark", Long.class))
+                .one();
+    }
+
+    /**
+     * Mayor id de evento confirmado y visible; 0 si no hay ninguno
+     */
+    @Override
+    public Mono<Long> findMaxMovementId() {
+        return databaseClient.sql("SELECT COALESCE(MAX(id), 0) AS max_id FROM stock_movements")
+                .map(row -> row.get("max_id", Long.class))
+                .one();
+    }
+
+    /**
+     * Suma a las instantáneas los eventos con id en (from, to], recorriendo solo ese tramo de la PK.
+     * Registra la corrida primero: si otra instancia ya tomó el mismo tramo, la clave única de
+     * from_movement_id hace fallar esta transacción sin sumar nada dos veces.
+     */
+    @Override
+    public Mono<Long> accumulateSnapshots(long fromMovementId, long toMovementId, LocalDateTime takenAt) {
+        Mono<Long> registerRun = databaseClient.sql("INSERT INTO inventory_snapshot_runs " +
+                        "(from_movement_id, to_movement_id, taken_at) VALUES (:from, :to, :takenAt)")
+                .bind("from", fromMovementId)
+                .bind("to", toMovementId)
+                .bind("takenAt", takenAt)
+                .fetch()
+                .rowsUpdated();
+
+        Mono<Long> accumulate = databaseClient.sql("INSERT INTO inventory_snapshots " +
+                        "(product_id, warehouse_id, stock, last_movement_id, taken_at) " +
+                        "SELECT product_id, warehouse_id, SUM(quantity), :to, :takenAt FROM stock_movements " +
+                        "WHERE id > :from AND id <= :to GROUP BY product_id, warehouse_id " +
+                        "ON DUPLICATE KEY UPDATE stock = stock + VALUES(stock), " +
+                        "last_movement_id = VALUES(last_movement_id), taken_at = VALUES(taken_at)")
+                .bind("from", fromMovementId)
+                .bind("to", toMovementId)
+                .bind("takenAt", takenAt)
+                .fetch()
+                .rowsUpdated();
+
+        return registerRun.then(accumulate)
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Eventos posteriores al watermark (la cola que la reconstrucción suma a las instantáneas)
+     */
+    @Override
+    public Mono<Long> countMovementsAfter(long watermark) {
+        return databaseClient.sql("SELECT COUNT(*) AS events FROM stock_movements WHERE id > :watermark")
+                .bind("watermark", watermark)
+                .map(row -> row.get("events", Long.class))
+                .one();
+    }
+
+    /**
+     * Corrige current_stock donde difiere del libro. Omite las claves con movimientos desde
+     * {@code quietSince} para no pisar escrituras en curso.
+     */
+    @Override
+    public Mono<Long> rebuildProjection(long watermark, LocalDateTime quietSince) {
+        return databaseClient.sql("UPDATE inventory i " + LEDGER_JOINS + " " +
+                        "SET i.current_stock = " + EXPECTED_STOCK + ", " +
+                        "i.available_stock = (" + EXPECTED_STOCK + ") - i.reserved_stock " +
+                        "WHERE i.current_stock <> " + EXPECTED_STOCK + " " +
+                        "AND (i.last_movement IS NULL OR i.last_movement < :quietSince)")
+                .bind("watermark", watermark)
+                .bind("quietSince", quietSince)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Override
+    public Flux<InventoryDrift> findDrift(long watermark, int limit) {
+        return databaseClient.sql("SELECT i.product_id, i.warehouse_id, i.current_stock, " +
+                        "CAST(" + EXPECTED_STOCK + " AS SIGNED) AS expected_stock " +
+                        "FROM inventory i " + LEDGER_JOINS + " " +
+                        "WHERE i.current_stock <> " + EXPECTED_STOCK + " " +
+                        "ORDER BY i.product_id, i.warehouse_id LIMIT :limit")
+                .bind("watermark", watermark)
+                .bind("limit", limit)
+                .map(row -> InventoryDrift.builder()
+                        .productId(row.get("product_id", Long.class))
+                        .warehouseId(row.get("warehouse_id", Long.class))
+                        .currentStock(row.get("current_stock", Integer.class))
+                        .expectedStock(row.get("expected_stock", Long.class))
+                        .build())
+                .all();
+    }
+
+    /**
+     * Stock de la clave a una fecha, sumando el libro completo hasta ese instante
+     */
+    @Override
+    public Mono<Long> findStockAsOf(Long productId, Long warehouseId, LocalDateTime asOf) {
+        return databaseClient.sql("SELECT CAST(COALESCE(SUM(quantity), 0) AS SIGNED) AS stock FROM stock_movements " +
+                        "WHERE product_id = :productId AND warehouse_id = :warehouseId AND created_at <= :asOf")
+                .bind("productId", productId)
+                .bind("warehouseId", warehouseId)
+                .bind("asOf", asOf)
+                .map(row -> row.get("stock", Long.class))
+                .one();
+    }
+}
@@ -4,10 +4,21 @@ package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ExpiringBatch;
 import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Inventory;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryStockRow;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryValuationRow;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductMovement;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockLevel;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockTotal;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.WarehouseStock;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.WarehouseProductStock;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+
 @Repository
 public interface InventoryRepository extends ReactiveCrudRepository<Inventory, Long> {
 
@@ -24,4 +35,115 @@ public interface InventoryRepository extends ReactiveCrudRepository<Inventory, L
             "(SELECT cost_price FROM products WHERE id = inventory.product_id)) " +
             "as total_value FROM inventory")
     Mono<Double> calculateTotalInventoryValue();
+
+    @Query("SELECT i.warehouse_id, p.category, " +
+            "CAST(SUM(i.current_stock * ROUND(COALESCE(p.cost_price, 0) * 100)) AS SIGNED) AS value_cents, " +
+            "NOW(6) AS taken_at " +
+            "FROM inventory i JOIN products p ON p.id = i.product_id " +
+            "GROUP BY i.warehouse_id, p.category")
+    Flux<InventoryValuationRow> sumValuationByWarehouseAndCategory();
+
+    @Query("SELECT warehouse_id, CAST(SUM(current_stock) AS SIGNED) AS stock, NOW(6) AS read_at " +
+            "FROM inventory WHERE product_id = :productId GROUP BY warehouse_id")
+    Flux<WarehouseStock> sumStockByWarehouse(Long productId);
+
+    @Query("SELECT COUNT(DISTINCT warehouse_id) FROM inventory")
+    Mono<Long> countWarehouses();
+
+    @Query("SELECT i.warehouse_id, MAX(i.warehouse_name) AS warehouse_name, p.id AS product_id, p.sku, p.name, " +
+            "p.category, p.brand, p.cost_price, p.sale_price, p.min_stock, p.max_stock, p.perishable, " +
+            "CAST(SUM(i.current_stock) AS SIGNED) AS total_stock, MIN(i.expiration_date) AS next_expiration " +
+            "FROM inventory i JOIN products p ON p.id = i.product_id " +
+            "GROUP BY i.warehouse_id, p.id, p.sku, p.name, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock, p.perishable")
+    Flux<WarehouseProductStock> findWarehouseProductStocks();
+
+    @Query("SELECT product_id, CAST(SUM(current_stock) AS SIGNED) AS total_stock FROM inventory " +
+            "WHERE product_id IN (:productIds) GROUP BY product_id")
+    Flux<ProductStockTotal> sumStockByProductIds(Collection<Long> productIds);
+
+    @Query("SELECT p.id AS product_id, p.sku, p.name, p.min_stock, p.max_stock, " +
+            "CAST(SUM(i.current_stock) AS SIGNED) AS total_stock " +
+            "FROM products p JOIN inventory i ON p.id = i.product_id " +
+            "GROUP BY p.id, p.sku, p.name, p.min_stock, p.max_stock " +
+            "HAVING SUM(i.current_stock) < p.min_stock " +
+            "OR (MAX(i.current_stock) > p.max_stock AND SUM(i.current_stock) > p.max_stock)")
+    Flux<ProductStockLevel> findOutOfRangeStockLevels();
+
+    @Query("SELECT p.id AS product_id, p.sku, p.name, p.min_stock, p.max_stock, " +
+            "CAST(SUM(i.current_stock) AS SIGNED) AS total_stock " +
+            "FROM products p JOIN inventory i ON p.id = i.product_id " +
+            "WHERE p.id IN (:productIds) " +
+            "GROUP BY p.id, p.sku, p.name, p.min_stock, p.max_stock " +
+            "HAVING SUM(i.current_stock) < p.min_stock " +
+            "OR (MAX(i.current_stock) > p.max_stock AND SUM(i.current_stock) > p.max_stock)")
+    Flux<ProductStockLevel> findOutOfRangeStockLevelsByProductIds(Collection<Long> productIds);
+
+    @Query("SELECT p.id AS product_id, p.sku, p.name, p.min_stock, p.max_stock, " +
+            "CAST(COALESCE(SUM(i.current_stock), 0) AS SIGNED) AS total_stock " +
+            "FROM products p LEFT JOIN inventory i ON p.id = i.product_id " +
+            "WHERE p.active = true " +
+            "GROUP BY p.id, p.sku, p.name, p.min_stock, p.max_stock")
+    Flux<ProductStockLevel> findActiveStockLevels();
+
+    @Query("SELECT p.id AS product_id, p.sku, p.name, p.description, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock, CAST(SUM(i.current_stock) AS SIGNED) AS total_stock " +
+            "FROM products p JOIN inventory i ON p.id = i.product_id " +
+            "WHERE p.min_stock > 0 " +
+            "GROUP BY p.id, p.sku, p.name, p.description, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock " +
+            "HAVING SUM(i.current_stock) < p.min_stock " +
+            "ORDER BY SUM(i.current_stock) / p.min_stock, p.id LIMIT :limit")
+    Flux<ProductStockLevel> findTopLowStockLevels(int limit);
+
+    @Query("SELECT p.id AS product_id, p.sku, p.name, p.description, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock, CAST(SUM(i.current_stock) AS SIGNED) AS total_stock " +
+            "FROM products p JOIN inventory i ON p.id = i.product_id " +
+            "WHERE p.max_stock > 0 " +
+            "GROUP BY p.id, p.sku, p.name, p.description, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock " +
+            "HAVING SUM(i.current_stock) > p.max_stock " +
+            "ORDER BY SUM(i.current_stock) / p.max_stock DESC, p.id LIMIT :limit")
+    Flux<ProductStockLevel> findTopOverstockLevels(int limit);
+
+    @Query("SELECT p.id AS product_id, p.sku, p.name, p.description, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock, CAST(SUM(i.current_stock) AS SIGNED) AS total_stock, " +
+            "MIN(i.expiration_date) AS next_expiration " +
+            "FROM products p JOIN inventory i ON p.id = i.product_id " +
+            "WHERE p.perishable = true " +
+            "GROUP BY p.id, p.sku, p.name, p.description, p.category, p.brand, p.cost_price, p.sale_price, " +
+            "p.min_stock, p.max_stock " +
+            "HAVING MIN(i.expiration_date) <= DATE_ADD(CURRENT_DATE, INTERVAL 7 DAY) " +
+            "ORDER BY MIN(i.expiration_date), p.id LIMIT :limit")
+    Flux<ProductStockLevel> findTopExpiringStockLevels(int limit);
+
+    @Query("SELECT product_id, MAX(last_movement) AS last_movement FROM inventory " +
+            "WHERE last_movement >= :since GROUP BY product_id")
+    Flux<ProductMovement> findProductMovementsSince(LocalDateTime since);
+
+    @Query("SELECT MAX(last_movement) FROM inventory HAVING MAX(last_movement) IS NOT NULL")
+    Mono<LocalDateTime> findLatestMovement();
+
+    @Query("SELECT i.id AS inventory_id, i.product_id, i.warehouse_id, i.batch_number, i.expiration_date, " +
+            "p.sku, p.name AS product_name " +
+            "FROM inventory i JOIN products p ON p.id = i.product_id " +
+            "WHERE i.expiration_date < :until " +
+            "AND (i.expiration_date > :afterDate OR (i.expiration_date = :afterDate AND i.id > :afterId)) " +
+            "ORDER BY i.expiration_date, i.id LIMIT :limit")
+    Flux<ExpiringBatch> findExpiringBatchesPage(LocalDateTime until, LocalDateTime afterDate,
+                                                Long afterId, int limit);
+
+    @Query("SELECT DISTINCT product_id FROM inventory WHERE product_id > :afterProductId " +
+            "ORDER BY product_id LIMIT :limit")
+    Flux<Long> findInventoryProductIdsPage(Long afterProductId, int limit);
+
+    @Query("SELECT i.id AS inventory_id, i.product_id, i.warehouse_id, i.batch_number, i.expiration_date, " +
+            "i.current_stock, p.sku, p.name AS product_name, p.min_stock, p.max_stock, " +
+            "CAST(SUM(i.current_stock) OVER (PARTITION BY i.product_id) AS SIGNED) AS total_stock, " +
+            "CAST(MAX(i.current_stock) OVER (PARTITION BY i.product_id) AS SIGNED) AS max_row_stock, " +
+            "ROW_NUMBER() OVER (PARTITION BY i.product_id ORDER BY i.id) AS product_row " +
+            "FROM products p JOIN inventory i ON i.product_id = p.id " +
+            "WHERE p.id IN (:productIds) " +
+            "ORDER BY i.product_id, i.id")
+    Flux<InventoryStockRow> findInventoryStockRowsByProductIds(Collection<Long> productIds);
 }
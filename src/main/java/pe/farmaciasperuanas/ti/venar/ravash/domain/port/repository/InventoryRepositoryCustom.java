@@ -1,7 +1,22 @@
 package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
 
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AppliedMovements;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface InventoryRepositoryCustom {
     Mono<Void> updateStock(Long productId, Long warehouseId, Integer quantity);
-}
\ No newline at end of file
+
+    Mono<Void> updateStock(Long productId, Long warehouseId, Integer quantity, MovementType type, String reference);
+
+    Mono<AppliedMovements> applyDeltas(List<List<StockDelta>> groups);
+
+    Mono<Boolean> reserveStock(Long productId, Long warehouseId, int quantity);
+
+    Mono<Boolean> releaseReservedStock(Long productId, Long warehouseId, int quantity);
+
+    Mono<Integer> findAvailableStock(Long productId, Long warehouseId);
+}
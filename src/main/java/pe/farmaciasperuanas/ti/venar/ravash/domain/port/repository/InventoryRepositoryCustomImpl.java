@@ -4,24 +4,302 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.stereotype.Repository;
 
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AppliedMovements;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementOutcome;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
 import reactor.core.publisher.Mono;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
 @Repository
 @RequiredArgsConstructor
 public class InventoryRepositoryCustomImpl implements InventoryRepositoryCustom {
 
     private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
 
     @Override
     public Mono<Void> updateStock(Long productId, Long warehouseId, Integer quantity) {
-        return databaseClient.sql("UPDATE inventory SET current_stock = current_stock + :quantity, " +
-                        "last_movement = CURRENT_TIMESTAMP " +
-                        "WHERE product_id = :productId AND warehouse_id = :warehouseId")
+        return updateStock(productId, warehouseId, quantity,
+                quantity >= 0 ? MovementType.ENTRADA : MovementType.SALIDA, null);
+    }
+
+    @Override
+    public Mono<Void> updateStock(Long productId, Long warehouseId, Integer quantity,
+                                  MovementType type, String reference) {
+        StockDelta delta = StockDelta.builder()
+                .productId(productId)
+                .warehouseId(warehouseId)
+                .quantity(quantity)
+                .movementType(type)
+                .reference(reference)
+                .build();
+        return applyDeltas(List.of(List.of(delta))).then();
+    }
+
+    /**
+     * Aplica un lote de grupos de movimientos en una sola transacción: los deltas se suman por
+     * (producto, almacén) en un único UPDATE con CASE, cada movimiento se registra en
+     * stock_movements y se acumula en los buckets por hora y por día. Las filas de inventario se
+     * bloquean primero y cada grupo se acepta entero o se rechaza, en orden: un grupo cuyas salidas
+     * dejarían current_stock por debajo de reserved_stock (o tomarían más reserva de la que hay) no
+     * se aplica, igual que uno con una clave sin inventario. Devuelve el resultado de cada grupo y el
+     * costo y la categoría con que la transacción vio cada producto, para valorizar lo aplicado.
+     */
+    @Override
+    public Mono<AppliedMovements> applyDeltas(List<List<StockDelta>> groups) {
+        if (groups.isEmpty()) {
+            return Mono.just(AppliedMovements.builder()
+                    .outcomes(List.of())
+                    .costPrices(Map.of())
+                    .categories(Map.of())
+                    .build());
+        }
+        LocalDateTime movedAt = LocalDateTime.now();
+
+        return lockInventory(groups.stream().flatMap(List::stream).toList())
+                .flatMap(locked -> {
+                    List<MovementOutcome> outcomes = groups.stream().map(group -> admit(group, locked.stock())).toList();
+                    List<StockDelta> applied = new ArrayList<>();
+                    for (int i = 0; i < groups.size(); i++) {
+                        if (outcomes.get(i) == MovementOutcome.APPLIED) {
+                            applied.addAll(groups.get(i));
+                        }
+                    }
+                    AppliedMovements.AppliedMovementsBuilder result = AppliedMovements.builder()
+                            .outcomes(outcomes)
+                            .costPrices(locked.costPrices())
+                            .categories(locked.categories());
+                    return applied.isEmpty()
+                            ? Mono.just(result.build())
+                            : updateInventory(applied, movedAt)
+                                    .then(recordMovements(applied, movedAt))
+                                    .then(currentTime())
+                                    .map(appliedAt -> result.appliedAt(appliedAt).build());
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    // Evalúa el grupo contra el stock bloqueado y, si entra, lo descuenta para los grupos siguientes
+    private static MovementOutcome admit(List<StockDelta> group, Map<List<Long>, LockedStock> locked) {
+        Map<List<Long>, LockedStock> after = new LinkedHashMap<>();
+        for (StockDelta delta : group) {
+            LockedStock current = after.containsKey(keyOf(delta)) ? after.get(keyOf(delta)) : locked.get(keyOf(delta));
+            if (current == null) {
+                return MovementOutcome.NO_INVENTORY;
+            }
+            LockedStock next = new LockedStock(current.current() + delta.getQuantity(),
+                    current.reserved() - delta.reservedUnits());
+            if (next.reserved() < 0 || (delta.availableChange() < 0 && next.current() < next.reserved())) {
+                return MovementOutcome.INSUFFICIENT_STOCK;
+            }
+            after.put(keyOf(delta), next);
+        }
+        locked.putAll(after);
+        return MovementOutcome.APPLIED;
+    }
+
+    /**
+     * Compara y reserva: solo suma a reserved_stock si el disponible alcanza, evaluado por
+     * MySQL sobre la fila bloqueada. false si no hay stock suficiente.
+     */
+    @Override
+    public Mono<Boolean> reserveStock(Long productId, Long warehouseId, int quantity) {
+        return databaseClient.sql("UPDATE inventory SET reserved_stock = reserved_stock + :quantity, " +
+                        "available_stock = current_stock - reserved_stock " +
+                        "WHERE product_id = :productId AND warehouse_id = :warehouseId " +
+                        "AND current_stock - reserved_stock >= :quantity")
                 .bind("quantity", quantity)
                 .bind("productId", productId)
                 .bind("warehouseId", warehouseId)
                 .fetch()
                 .rowsUpdated()
+                .map(updated -> updated > 0);
+    }
+
+    @Override
+    public Mono<Boolean> releaseReservedStock(Long productId, Long warehouseId, int quantity) {
+        return databaseClient.sql("UPDATE inventory SET reserved_stock = reserved_stock - :quantity, " +
+                        "available_stock = current_stock - reserved_stock " +
+                        "WHERE product_id = :productId AND warehouse_id = :warehouseId " +
+                        "AND reserved_stock >= :quantity")
+                .bind("quantity", quantity)
+                .bind("productId", productId)
+                .bind("warehouseId", warehouseId)
+                .fetch()
+                .rowsUpdated()
+                .map(updated -> updated > 0);
+    }
+
+    @Override
+    public Mono<Integer> findAvailableStock(Long productId, Long warehouseId) {
+        return databaseClient.sql("SELECT current_stock - reserved_stock AS available FROM inventory " +
+                        "WHERE product_id = :productId AND warehouse_id = :warehouseId")
+                .bind("productId", productId)
+                .bind("warehouseId", warehouseId)
+                .map(row -> row.get("available", Long.class))
+                .one()
+                .map(Long::intValue);
+    }
+
+    // Stock de las claves (producto, almacén) del lote que existen en inventario, con sus filas
+    // bloqueadas, y el costo y la categoría de sus productos (sin bloquearlos)
+    private Mono<LockedInventory> lockInventory(List<StockDelta> deltas) {
+        List<List<Long>> keys = deltas.stream().map(InventoryRepositoryCustomImpl::keyOf).distinct().toList();
+        StringJoiner rows = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < keys.size(); i++) {
+            rows.add(String.format("(:productId%1$d, :warehouseId%1$d)", i));
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("SELECT i.product_id, i.warehouse_id, " +
+                "COALESCE(i.current_stock, 0) AS current_stock, COALESCE(i.reserved_stock, 0) AS reserved_stock, " +
+                "p.cost_price, p.category " +
+                "FROM inventory i LEFT JOIN products p ON p.id = i.product_id " +
+                "WHERE (i.product_id, i.warehouse_id) IN " + rows + " FOR UPDATE OF i");
+        for (int i = 0; i < keys.size(); i++) {
+            spec = spec.bind("productId" + i, keys.get(i).get(0))
+                    .bind("warehouseId" + i, keys.get(i).get(1));
+        }
+        return spec.map(row -> new LockedRow(row.get("product_id", Long.class), row.get("warehouse_id", Long.class),
+                        new LockedStock(row.get("current_stock", Integer.class), row.get("reserved_stock", Integer.class)),
+                        row.get("cost_price", BigDecimal.class), row.get("category", String.class)))
+                .all()
+                .collect(() -> new LockedInventory(new HashMap<>(), new HashMap<>(), new HashMap<>()), (locked, row) -> {
+                    locked.stock().put(List.of(row.productId(), row.warehouseId()), row.stock());
+                    locked.costPrices().put(row.productId(), row.costPrice());
+                    locked.categories().put(row.productId(), row.category());
+                });
+    }
+
+    private Mono<LocalDateTime> currentTime() {
+        return databaseClient.sql("SELECT NOW(6) AS now")
+                .map(row -> row.get("now", LocalDateTime.class))
+                .one();
+    }
+
+    private static List<Long> keyOf(StockDelta delta) {
+        return List.of(delta.getProductId(), delta.getWarehouseId());
+    }
+
+    private Mono<Long> updateInventory(List<StockDelta> deltas, LocalDateTime movedAt) {
+        Map<List<Long>, Integer> quantities = new LinkedHashMap<>();
+        Map<List<Long>, Integer> reserved = new HashMap<>();
+        deltas.forEach(delta -> {
+            quantities.merge(keyOf(delta), delta.getQuantity(), Integer::sum);
+            reserved.merge(keyOf(delta), delta.reservedUnits(), Integer::sum);
+        });
+        List<List<Long>> keys = new ArrayList<>(quantities.keySet());
+
+        StringJoiner stockCases = new StringJoiner(" ", "CASE ", " ELSE 0 END");
+        StringJoiner reservedCases = new StringJoiner(" ", "CASE ", " ELSE 0 END");
+        StringJoiner rows = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < keys.size(); i++) {
+            String when = String.format("WHEN product_id = :productId%1$d AND warehouse_id = :warehouseId%1$d ", i);
+            stockCases.add(when + String.format("THEN :quantity%d", i));
+            reservedCases.add(when + String.format("THEN :reserved%d", i));
+            rows.add(String.format("(:productId%1$d, :warehouseId%1$d)", i));
+        }
+
+        // available_stock primero, con los valores previos de la fila
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql("UPDATE inventory " +
+                        "SET available_stock = (current_stock + " + stockCases + ") - " +
+                        "(COALESCE(reserved_stock, 0) - " + reservedCases + "), " +
+                        "current_stock = current_stock + " + stockCases + ", " +
+                        "reserved_stock = COALESCE(reserved_stock, 0) - " + reservedCases + ", " +
+                        "last_movement = :movedAt " +
+                        "WHERE (product_id, warehouse_id) IN " + rows)
+                .bind("movedAt", movedAt);
+        for (int i = 0; i < keys.size(); i++) {
+            spec = spec.bind("productId" + i, keys.get(i).get(0))
+                    .bind("warehouseId" + i, keys.get(i).get(1))
+                    .bind("quantity" + i, quantities.get(keys.get(i)))
+                    .bind("reserved" + i, reserved.get(keys.get(i)));
+        }
+        return spec.fetch().rowsUpdated();
+    }
+
+    private Mono<Void> recordMovements(List<StockDelta> deltas, LocalDateTime movedAt) {
+        return insertLedger(deltas, movedAt)
+                .then(accumulate("stock_movement_hourly", movedAt.truncatedTo(ChronoUnit.HOURS), deltas))
+                .then(accumulate("stock_movement_daily", movedAt.toLocalDate(), deltas))
                 .then();
     }
-}
\ No newline at end of file
+
+    private Mono<Long> insertLedger(List<StockDelta> deltas, LocalDateTime movedAt) {
+        String sql = "INSERT INTO stock_movements " +
+                "(product_id, warehouse_id, movement_type, quantity, amount, reference, created_at) " +
+                "SELECT d.product_id, d.warehouse_id, d.movement_type, d.quantity, " +
+                "ABS(d.quantity) * COALESCE(p.sale_price, 0), d.reference, :movedAt " +
+                "FROM " + movementsTable(deltas.size()) + " d " + productJoin();
+        return bindMovements(databaseClient.sql(sql), deltas)
+                .bind("movedAt", movedAt)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Suma los movimientos del lote a su bucket, por almacén y tipo
+    private Mono<Long> accumulate(String rollupTable, Object bucketStart, List<StockDelta> deltas) {
+        String sql = "INSERT INTO " + rollupTable + " " +
+                "(bucket_start, warehouse_id, movement_type, movements, units, amount) " +
+                "SELECT :bucketStart, d.warehouse_id, d.movement_type, COUNT(*), SUM(ABS(d.quantity)), " +
+                "SUM(ABS(d.quantity) * COALESCE(p.sale_price, 0)) " +
+                "FROM " + movementsTable(deltas.size()) + " d " + productJoin() +
+                "GROUP BY d.warehouse_id, d.movement_type " +
+                "ON DUPLICATE KEY UPDATE movements = movements + VALUES(movements), " +
+                "units = units + VALUES(units), amount = amount + VALUES(amount)";
+        return bindMovements(databaseClient.sql(sql), deltas)
+                .bind("bucketStart", bucketStart)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    // Tabla derivada con los movimientos del lote (SELECT ... UNION ALL SELECT ...)
+    private static String movementsTable(int size) {
+        StringJoiner table = new StringJoiner(" UNION ALL ", "(", ")");
+        for (int i = 0; i < size; i++) {
+            table.add(String.format("SELECT :mProductId%1$d AS product_id, :mWarehouseId%1$d AS warehouse_id, " +
+                    ":mType%1$d AS movement_type, :mQuantity%1$d AS quantity, :mReference%1$d AS reference", i));
+        }
+        return table.toString();
+    }
+
+    private static String productJoin() {
+        return "JOIN products p ON p.id = d.product_id ";
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindMovements(DatabaseClient.GenericExecuteSpec spec,
+                                                            List<StockDelta> deltas) {
+        for (int i = 0; i < deltas.size(); i++) {
+            StockDelta delta = deltas.get(i);
+            spec = spec.bind("mProductId" + i, delta.getProductId())
+                    .bind("mWarehouseId" + i, delta.getWarehouseId())
+                    .bind("mType" + i, delta.getMovementType().name())
+                    .bind("mQuantity" + i, delta.getQuantity());
+            spec = delta.getReference() != null
+                    ? spec.bind("mReference" + i, delta.getReference())
+                    : spec.bindNull("mReference" + i, String.class);
+        }
+        return spec;
+    }
+
+    private record LockedStock(int current, int reserved) {}
+
+    private record LockedRow(Long productId, Long warehouseId, LockedStock stock, BigDecimal costPrice,
+                             String category) {}
+
+    private record LockedInventory(
+            Map<List<Long>, LockedStock> stock,
+            Map<Long, BigDecimal> costPrices,
+            Map<Long, String> categories
+    ) {}
+}
@@ -8,15 +8,36 @@ import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
 public interface ProductRepository extends ReactiveCrudRepository<Product, Long> {
 
     Mono<Product> findBySku(String sku);
 
+    Flux<Product> findBySkuIn(Collection<String> skus);
+
     Flux<Product> findByCategory(String category);
 
     Flux<Product> findByActiveTrue();
 
+    // Una consulta por combinación de filtros: con "(:x IS NULL OR x = :x)" MySQL no usa el índice (x, id)
+    @Query("SELECT * FROM products WHERE active = true AND id > :afterId " +
+            "ORDER BY id LIMIT :limit")
+    Flux<Product> findActivePage(Long afterId, int limit);
+
+    @Query("SELECT * FROM products WHERE category = :category AND active = true AND id > :afterId " +
+            "ORDER BY id LIMIT :limit")
+    Flux<Product> findActivePageByCategory(Long afterId, String category, int limit);
+
+    @Query("SELECT * FROM products WHERE brand = :brand AND active = true AND id > :afterId " +
+            "ORDER BY id LIMIT :limit")
+    Flux<Product> findActivePageByBrand(Long afterId, String brand, int limit);
+
+    @Query("SELECT * FROM products WHERE category = :category AND brand = :brand AND active = true " +
+            "AND id > :afterId ORDER BY id LIMIT :limit")
+    Flux<Product> findActivePageByCategoryAndBrand(Long afterId, String category, String brand, int limit);
+
     @Query("SELECT p.* FROM products p " +
             "JOIN inventory i ON p.id = i.product_id " +
             "WHERE i.current_stock < p.min_stock")
@@ -0,0 +1,10 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    Mono<Long> upsertAll(List<Product> products, boolean updateExisting);
+}
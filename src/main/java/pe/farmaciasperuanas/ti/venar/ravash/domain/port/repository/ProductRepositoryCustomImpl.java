@@ -0,0 +1,72 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.StringJoiner;
+
+@Repository
+@RequiredArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * INSERT multi-fila por SKU (idx_product_sku). Con {@code updateExisting} los SKU existentes
+     * se actualizan y reactivan; sin él se dejan intactos (INSERT IGNORE).
+     * <p>
+     * Devuelve las filas afectadas. El driver negocia CLIENT_FOUND_ROWS, así que un
+     * {@code ON DUPLICATE KEY UPDATE id = id} contaría 1 igual que un alta; con INSERT IGNORE los
+     * SKU existentes cuentan 0. Con {@code updateExisting}: 1 por alta y 2 por actualización.
+     */
+    @Override
+    public Mono<Long> upsertAll(List<Product> products, boolean updateExisting) {
+        if (products.isEmpty()) {
+            return Mono.just(0L);
+        }
+
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < products.size(); i++) {
+            values.add(String.format("(:sku%1$d, :name%1$d, :description%1$d, :category%1$d, :brand%1$d, " +
+                    ":costPrice%1$d, :salePrice%1$d, :minStock%1$d, true, false, :createdAt%1$d)", i));
+        }
+
+        String onDuplicate = updateExisting
+                ? " ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description), " +
+                  "category = VALUES(category), brand = VALUES(brand), cost_price = VALUES(cost_price), " +
+                  "sale_price = VALUES(sale_price), min_stock = VALUES(min_stock), active = true, " +
+                  "updated_at = CURRENT_TIMESTAMP"
+                : "";
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql((updateExisting ? "INSERT" : "INSERT IGNORE") +
+                " INTO products (sku, name, description, category, brand, cost_price, sale_price, min_stock, " +
+                "active, perishable, created_at) VALUES " + values + onDuplicate);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            spec = bind(spec, "sku" + i, product.getSku(), String.class);
+            spec = bind(spec, "name" + i, product.getName(), String.class);
+            spec = bind(spec, "description" + i, product.getDescription(), String.class);
+            spec = bind(spec, "category" + i, product.getCategory(), String.class);
+            spec = bind(spec, "brand" + i, product.getBrand(), String.class);
+            spec = bind(spec, "costPrice" + i, product.getCostPrice(), BigDecimal.class);
+            spec = bind(spec, "salePrice" + i, product.getSalePrice(), BigDecimal.class);
+            spec = bind(spec, "minStock" + i, product.getMinStock(), Integer.class);
+            spec = bind(spec, "createdAt" + i, now, LocalDateTime.class);
+        }
+
+        return spec.fetch().rowsUpdated();
+    }
+
+    private DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+                                                   Object value, Class<?> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+}
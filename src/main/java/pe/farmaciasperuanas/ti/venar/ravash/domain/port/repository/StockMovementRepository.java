@@ -0,0 +1,35 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementRollup;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockMovement;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockMovementRepository extends ReactiveCrudRepository<StockMovement, Long> {
+
+    Flux<StockMovement> findByProductIdOrderByCreatedAtDesc(Long productId);
+
+    @Query("SELECT CAST(bucket_start AS DATETIME) AS bucket_start, movement_type, " +
+            "CAST(SUM(movements) AS SIGNED) AS movements, CAST(SUM(units) AS SIGNED) AS units, SUM(amount) AS amount " +
+            "FROM stock_movement_daily WHERE bucket_start BETWEEN :from AND :to " +
+            "GROUP BY bucket_start, movement_type ORDER BY bucket_start")
+    Flux<MovementRollup> findDailyRollups(LocalDate from, LocalDate to);
+
+    @Query("SELECT CAST(bucket_start AS DATETIME) AS bucket_start, warehouse_id, movement_type, " +
+            "CAST(movements AS SIGNED) AS movements, units, amount " +
+            "FROM stock_movement_daily WHERE bucket_start BETWEEN :from AND :to " +
+            "ORDER BY warehouse_id, bucket_start")
+    Flux<MovementRollup> findDailyRollupsPerWarehouse(LocalDate from, LocalDate to);
+
+    @Query("SELECT bucket_start, movement_type, " +
+            "CAST(SUM(movements) AS SIGNED) AS movements, CAST(SUM(units) AS SIGNED) AS units, SUM(amount) AS amount " +
+            "FROM stock_movement_hourly WHERE bucket_start >= :from AND bucket_start < :to " +
+            "GROUP BY bucket_start, movement_type ORDER BY bucket_start")
+    Flux<MovementRollup> findHourlyRollups(LocalDateTime from, LocalDateTime to);
+}
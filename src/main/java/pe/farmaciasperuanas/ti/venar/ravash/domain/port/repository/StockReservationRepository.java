@@ -0,0 +1,35 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockReservation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockReservationRepository extends ReactiveCrudRepository<StockReservation, Long> {
+
+    /**
+     * Cambio de estado condicionado a que la reserva siga PENDING; 0 si otro proceso ya la cerró
+     */
+    @Modifying
+    @Query("UPDATE stock_reservations SET status = :status, updated_at = CURRENT_TIMESTAMP(6) " +
+            "WHERE id = :id AND status = 'PENDING'")
+    Mono<Integer> closePending(Long id, String status);
+
+    /**
+     * Devuelve a PENDING una reserva CONFIRMED cuya venta no se pudo registrar
+     */
+    @Modifying
+    @Query("UPDATE stock_reservations SET status = 'PENDING', updated_at = CURRENT_TIMESTAMP(6) " +
+            "WHERE id = :id AND status = 'CONFIRMED'")
+    Mono<Integer> reopenConfirmed(Long id);
+
+    @Query("SELECT * FROM stock_reservations WHERE status = 'PENDING' AND expires_at <= :now " +
+            "ORDER BY expires_at LIMIT :limit")
+    Flux<StockReservation> findExpired(LocalDateTime now, int limit);
+}
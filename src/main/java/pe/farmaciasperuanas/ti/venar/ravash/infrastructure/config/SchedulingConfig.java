@@ -0,0 +1,10 @@
+package pe.farmaciasperuanas.ti.venar.ravash.infrastructure.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Habilita los procesos @Scheduled (generación de alertas)
+}
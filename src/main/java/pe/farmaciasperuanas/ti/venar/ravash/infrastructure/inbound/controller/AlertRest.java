@@ -0,0 +1,61 @@
+package pe.farmaciasperuanas.ti.venar.ravash.infrastructure.inbound.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.AlertArchiveService;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.AlertService;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.AlertEvent;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertArchive;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+
+/**
+ * Controlador que expone las alertas de inventario a trav&eacute;s de HTTP/Rest<br/>
+ * <b>Class</b>: AlertRest<br/>
+ * <b>Copyright</b>: 2025 Farmacias Peruanas.<br/>
+ * <b>Company</b>:Farmacias Peruanas.<br/>
+ *
+ * <u>Developed by</u>: <br/>
+ * <ul>
+ * <li>Mirko Bermudez</li>
+ * </ul>
+ * <u>Changes</u>:<br/>
+ * <ul>
+ * <li>Oct 18, 2026 Stream de alertas en vivo (SSE / NDJSON).</li>
+ * <li>Oct 18, 2026 Consulta del hist&oacute;rico de alertas archivadas.</li>
+ * </ul>
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/alerts")
+@RequiredArgsConstructor
+public class AlertRest {
+
+  private final AlertService alertService;
+  private final AlertArchiveService alertArchiveService;
+
+  @GetMapping(value = "/stream",
+      produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+  public Flux<AlertEvent> streamAlerts() {
+    return alertService.streamAlerts();
+  }
+
+  @GetMapping(value = "/archive")
+  public Flux<AlertArchive> getArchivedAlerts(
+      @RequestParam(required = false) Long productId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "50") int size) {
+    return alertArchiveService.getArchivedAlerts(productId, from, to, page, size);
+  }
+
+}
@@ -0,0 +1,65 @@
+package pe.farmaciasperuanas.ti.venar.ravash.infrastructure.inbound.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.DashboardService;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.DashboardChangesDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.DashboardDTO;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controlador que expone el dashboard de inventario a trav&eacute;s de HTTP/Rest<br/>
+ * <b>Class</b>: DashboardRest<br/>
+ * <b>Copyright</b>: 2025 Farmacias Peruanas.<br/>
+ * <b>Company</b>:Farmacias Peruanas.<br/>
+ *
+ * <u>Developed by</u>: <br/>
+ * <ul>
+ * <li>Mirko Bermudez</li>
+ * </ul>
+ * <u>Changes</u>:<br/>
+ * <ul>
+ * <li>Oct 18, 2026 Respuestas condicionales (ETag / If-None-Match) y cambios por versi&oacute;n.</li>
+ * </ul>
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/dashboard")
+@RequiredArgsConstructor
+public class DashboardRest {
+
+  private final DashboardService dashboardService;
+
+  @GetMapping
+  public Mono<ResponseEntity<DashboardDTO>> getDashboard(ServerWebExchange exchange) {
+    return dashboardService.getDashboardData()
+        .map(dashboard -> {
+          String etag = DashboardService.etagOf(dashboard);
+          if (exchange.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<DashboardDTO>build();
+          }
+          return ResponseEntity.ok().eTag(etag).body(dashboard);
+        });
+  }
+
+  @GetMapping(value = "/changes")
+  public Mono<DashboardChangesDTO> getDashboardChanges(@RequestParam long since,
+                                                      @RequestParam(required = false) String epoch) {
+    return dashboardService.getDashboardChanges(since, epoch);
+  }
+
+  @GetMapping(value = "/warehouses/{warehouseId}")
+  public Mono<DashboardDTO> getDashboardByWarehouse(@PathVariable Long warehouseId) {
+    return dashboardService.getDashboardByWarehouse(warehouseId);
+  }
+
+}
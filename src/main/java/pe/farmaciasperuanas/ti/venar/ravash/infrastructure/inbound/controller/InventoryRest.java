@@ -0,0 +1,138 @@
+package pe.farmaciasperuanas.ti.venar.ravash.infrastructure.inbound.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.InventoryLedgerService;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.InventoryService;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.InventoryValuation;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.StockMovementIngestor;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.StockReservationService;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.InventoryDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockMovementDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockReservationDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryDrift;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Controlador que expone las operaciones de inventario a trav&eacute;s de HTTP/Rest<br/>
+ * <b>Class</b>: InventoryRest<br/>
+ * <b>Copyright</b>: 2025 Farmacias Peruanas.<br/>
+ * <b>Company</b>:Farmacias Peruanas.<br/>
+ *
+ * <u>Developed by</u>: <br/>
+ * <ul>
+ * <li>Mirko Bermudez</li>
+ * </ul>
+ * <u>Changes</u>:<br/>
+ * <ul>
+ * <li>Oct 18, 2026 Registro de movimientos de stock.</li>
+ * <li>Oct 18, 2026 M&eacute;tricas de la ingesta agrupada de movimientos.</li>
+ * <li>Oct 18, 2026 Reservas de stock (reservar, confirmar, liberar).</li>
+ * <li>Oct 18, 2026 Libro de eventos: instant&aacute;neas, reconstrucci&oacute;n y auditor&iacute;a.</li>
+ * <li>Oct 18, 2026 Valorizaci&oacute;n incremental del inventario.</li>
+ * </ul>
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/inventory")
+@RequiredArgsConstructor
+public class InventoryRest {
+
+  private final InventoryService inventoryService;
+  private final StockMovementIngestor stockMovementIngestor;
+  private final StockReservationService stockReservationService;
+  private final InventoryLedgerService inventoryLedgerService;
+  private final InventoryValuation inventoryValuation;
+
+  @PostMapping(value = "/movements")
+  @ResponseStatus(HttpStatus.CREATED)
+  public Mono<InventoryDTO> registerMovement(@Valid @RequestBody StockMovementDTO movement) {
+    return inventoryService.registerMovement(movement);
+  }
+
+  @GetMapping(value = "/movements/ingestion/stats")
+  public Mono<StockMovementIngestor.Stats> getIngestionStats() {
+    return Mono.fromSupplier(stockMovementIngestor::getStats);
+  }
+
+  @PostMapping(value = "/reservations")
+  @ResponseStatus(HttpStatus.CREATED)
+  public Mono<StockReservationDTO> reserve(@Valid @RequestBody StockReservationDTO reservation) {
+    return stockReservationService.reserve(reservation);
+  }
+
+  @GetMapping(value = "/reservations/{id}")
+  public Mono<StockReservationDTO> getReservation(@PathVariable Long id) {
+    return stockReservationService.getReservation(id);
+  }
+
+  @PostMapping(value = "/reservations/{id}/confirm")
+  public Mono<StockReservationDTO> confirmReservation(@PathVariable Long id) {
+    return stockReservationService.confirm(id);
+  }
+
+  @PostMapping(value = "/reservations/{id}/release")
+  public Mono<StockReservationDTO> releaseReservation(@PathVariable Long id) {
+    return stockReservationService.release(id);
+  }
+
+  @GetMapping(value = "/reservations/stats")
+  public Mono<StockReservationService.Stats> getReservationStats() {
+    return Mono.fromSupplier(stockReservationService::getStats);
+  }
+
+  @GetMapping(value = "/valuation")
+  public Mono<InventoryValuation.Valuation> getValuation() {
+    return Mono.fromSupplier(inventoryValuation::getValuation);
+  }
+
+  @GetMapping(value = "/ledger/stock")
+  public Mono<Long> getStockAsOf(
+      @RequestParam Long productId,
+      @RequestParam Long warehouseId,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+    return inventoryLedgerService.getStockAsOf(productId, warehouseId, asOf);
+  }
+
+  @GetMapping(value = "/ledger/drift")
+  public Flux<InventoryDrift> getLedgerDrift() {
+    return inventoryLedgerService.findDrift();
+  }
+
+  @PostMapping(value = "/ledger/snapshots")
+  public Mono<InventoryLedgerService.SnapshotRun> takeSnapshot() {
+    return inventoryLedgerService.takeSnapshot();
+  }
+
+  @GetMapping(value = "/ledger/snapshots/last")
+  public Mono<InventoryLedgerService.SnapshotRun> getLastSnapshotRun() {
+    return inventoryLedgerService.getLastSnapshotRun();
+  }
+
+  @PostMapping(value = "/ledger/rebuild")
+  public Mono<InventoryLedgerService.RebuildRun> rebuildProjection(
+      @RequestParam(defaultValue = "false") boolean force) {
+    return inventoryLedgerService.rebuildProjection(force);
+  }
+
+  @GetMapping(value = "/ledger/rebuild/last")
+  public Mono<InventoryLedgerService.RebuildRun> getLastRebuildRun() {
+    return inventoryLedgerService.getLastRebuildRun();
+  }
+
+}
@@ -0,0 +1,103 @@
+package pe.farmaciasperuanas.ti.venar.ravash.infrastructure.inbound.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.ProductCache;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.ProductImportService;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.ProductSearchIndex;
+import pe.farmaciasperuanas.ti.venar.ravash.application.service.ProductService;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductImportEvent;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductPageDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductSearchHit;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Controlador que expone el cat&aacute;logo de productos a trav&eacute;s de HTTP/Rest<br/>
+ * <b>Class</b>: ProductRest<br/>
+ * <b>Copyright</b>: 2025 Farmacias Peruanas.<br/>
+ * <b>Company</b>:Farmacias Peruanas.<br/>
+ *
+ * <u>Developed by</u>: <br/>
+ * <ul>
+ * <li>Mirko Bermudez</li>
+ * </ul>
+ * <u>Changes</u>:<br/>
+ * <ul>
+ * <li>Oct 18, 2026 Listado paginado por keyset y exportaci&oacute;n NDJSON.</li>
+ * <li>Oct 18, 2026 Importaci&oacute;n masiva CSV / NDJSON.</li>
+ * <li>Oct 18, 2026 B&uacute;squeda por prefijo (type-ahead) sobre &iacute;ndice en memoria.</li>
+ * <li>Oct 18, 2026 Estad&iacute;sticas de la cach&eacute; de productos.</li>
+ * </ul>
+ * @version 1.0
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/products")
+@RequiredArgsConstructor
+public class ProductRest {
+
+  private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+  private final ProductService productService;
+  private final ProductImportService productImportService;
+  private final ProductSearchIndex productSearchIndex;
+  private final ProductCache productCache;
+
+  @GetMapping
+  public Mono<ProductPageDTO> getProducts(
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String category,
+      @RequestParam(required = false) String brand,
+      @RequestParam(defaultValue = "50") int limit) {
+    return productService.getProductsPage(cursor, category, brand, limit);
+  }
+
+  @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<ProductDTO> streamProducts(
+      @RequestParam(required = false) String category,
+      @RequestParam(required = false) String brand) {
+    return productService.streamProducts(category, brand);
+  }
+
+  @GetMapping(value = "/search")
+  public Mono<List<ProductSearchHit>> searchProducts(
+      @RequestParam String q,
+      @RequestParam(defaultValue = "10") int limit) {
+    return Mono.fromSupplier(() -> productService.searchProducts(q, limit));
+  }
+
+  @GetMapping(value = "/search/stats")
+  public Mono<ProductSearchIndex.IndexStats> getSearchIndexStats() {
+    return Mono.fromSupplier(productSearchIndex::getStats);
+  }
+
+  @GetMapping(value = "/cache/stats")
+  public Mono<ProductCache.Stats> getCacheStats() {
+    return Mono.fromSupplier(productCache::getStats);
+  }
+
+  @PostMapping(value = "/import",
+      consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE},
+      produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<ProductImportEvent> importProducts(
+      ServerHttpRequest request,
+      @RequestParam(defaultValue = "false") boolean upsert) {
+    MediaType contentType = request.getHeaders().getContentType();
+    ProductImportService.Format format = contentType != null && contentType.isCompatibleWith(TEXT_CSV)
+        ? ProductImportService.Format.CSV
+        : ProductImportService.Format.NDJSON;
+    return productImportService.importProducts(request.getBody(), format, upsert);
+  }
+
+}
@@ -0,0 +1,25 @@
+-- Huella de deduplicación de alertas: type:product_id:warehouse_id:batch_number
+ALTER TABLE alerts
+    ADD COLUMN batch_number VARCHAR(50) NULL AFTER warehouse_id,
+    ADD COLUMN fingerprint VARCHAR(191) NULL AFTER recommendation;
+
+UPDATE alerts
+SET fingerprint = CONCAT_WS(':', type, COALESCE(product_id, '-'), COALESCE(warehouse_id, '-'), COALESCE(batch_number, '-'));
+
+-- Cerrar duplicados abiertos existentes, conservando la alerta más reciente por huella
+UPDATE alerts a
+    JOIN (SELECT fingerprint, MAX(id) AS keep_id
+          FROM alerts
+          WHERE resolved = false
+          GROUP BY fingerprint) k ON a.fingerprint = k.fingerprint
+SET a.resolved = true,
+    a.resolved_at = CURRENT_TIMESTAMP,
+    a.resolved_by = 'dedup-migration'
+WHERE a.resolved = false
+  AND a.id <> k.keep_id;
+
+-- Respaldo en base de datos: una sola alerta abierta por huella (las resueltas quedan en NULL)
+ALTER TABLE alerts
+    ADD COLUMN open_fingerprint VARCHAR(191)
+        GENERATED ALWAYS AS (IF(resolved, NULL, fingerprint)) STORED,
+    ADD UNIQUE INDEX uk_alerts_open_fingerprint (open_fingerprint);
@@ -0,0 +1,2 @@
+-- Índice para el recorrido por ventana de vencimiento (InnoDB agrega el id al índice secundario)
+CREATE INDEX idx_inventory_expiration ON inventory (expiration_date);
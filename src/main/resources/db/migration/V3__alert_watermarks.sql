@@ -0,0 +1,9 @@
+-- Marca de agua persistida para la evaluación incremental de alertas
+CREATE TABLE alert_watermarks (
+    name       VARCHAR(50) NOT NULL PRIMARY KEY,
+    watermark  DATETIME(6) NOT NULL,
+    updated_at DATETIME    NOT NULL
+);
+
+-- Búsqueda de productos con movimientos desde la última evaluación
+CREATE INDEX idx_inventory_last_movement ON inventory (last_movement);
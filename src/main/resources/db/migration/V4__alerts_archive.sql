@@ -0,0 +1,27 @@
+-- Histórico de alertas resueltas, particionado por mes de creación.
+-- La clave primaria incluye created_at porque MySQL exige la columna de partición en toda clave única.
+-- Se crea solo con p_future: AlertArchiveService divide p_future en meses desde la alerta más antigua.
+CREATE TABLE alerts_archive (
+    id               BIGINT       NOT NULL,
+    product_id       BIGINT       NULL,
+    warehouse_id     BIGINT       NULL,
+    batch_number     VARCHAR(50)  NULL,
+    type             VARCHAR(30)  NOT NULL,
+    severity         VARCHAR(10)  NOT NULL,
+    message          TEXT         NULL,
+    recommendation   TEXT         NULL,
+    fingerprint      VARCHAR(191) NULL,
+    resolved_at      DATETIME     NULL,
+    resolved_by      VARCHAR(100) NULL,
+    created_at       DATETIME     NOT NULL,
+    scheduled_review DATETIME     NULL,
+    archived_at      DATETIME     NOT NULL,
+    PRIMARY KEY (id, created_at),
+    KEY idx_alerts_archive_product (product_id, created_at)
+)
+PARTITION BY RANGE COLUMNS (created_at) (
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
+
+-- Selección de alertas resueltas antiguas para archivar
+CREATE INDEX idx_alerts_resolved_at ON alerts (resolved, resolved_at);
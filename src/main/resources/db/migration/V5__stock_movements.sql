@@ -0,0 +1,34 @@
+-- Libro de movimientos de stock: una fila por cada cambio aplicado a inventory
+CREATE TABLE stock_movements (
+    id            BIGINT        NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    product_id    BIGINT        NOT NULL,
+    warehouse_id  BIGINT        NOT NULL,
+    movement_type VARCHAR(20)   NOT NULL, -- ENTRADA | SALIDA | AJUSTE | DEVOLUCION
+    quantity      INT           NOT NULL, -- delta con signo aplicado a current_stock
+    amount        DECIMAL(16,2) NOT NULL, -- |quantity| * precio de venta al momento del movimiento
+    reference     VARCHAR(100)  NULL,
+    created_at    DATETIME(6)   NOT NULL,
+    INDEX idx_stock_movements_product (product_id, created_at),
+    INDEX idx_stock_movements_created (created_at)
+);
+
+-- Agregados por hora y por día, mantenidos de forma incremental al registrar cada movimiento
+CREATE TABLE stock_movement_hourly (
+    bucket_start  DATETIME      NOT NULL,
+    warehouse_id  BIGINT        NOT NULL,
+    movement_type VARCHAR(20)   NOT NULL,
+    movements     INT           NOT NULL,
+    units         BIGINT        NOT NULL,
+    amount        DECIMAL(18,2) NOT NULL,
+    PRIMARY KEY (bucket_start, warehouse_id, movement_type)
+);
+
+CREATE TABLE stock_movement_daily (
+    bucket_start  DATE          NOT NULL,
+    warehouse_id  BIGINT        NOT NULL,
+    movement_type VARCHAR(20)   NOT NULL,
+    movements     INT           NOT NULL,
+    units         BIGINT        NOT NULL,
+    amount        DECIMAL(18,2) NOT NULL,
+    PRIMARY KEY (bucket_start, warehouse_id, movement_type)
+);
@@ -0,0 +1,19 @@
+-- Reservas de stock (pedidos online, separaciones en tienda). Mientras están pendientes
+-- su cantidad se suma a inventory.reserved_stock; al confirmarse se descuenta de current_stock
+CREATE TABLE stock_reservations (
+    id           BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    product_id   BIGINT       NOT NULL,
+    warehouse_id BIGINT       NOT NULL,
+    quantity     INT          NOT NULL,
+    status       VARCHAR(20)  NOT NULL, -- PENDING | CONFIRMED | RELEASED | EXPIRED
+    reference    VARCHAR(100) NULL,
+    expires_at   DATETIME(6)  NOT NULL,
+    created_at   DATETIME(6)  NOT NULL,
+    updated_at   DATETIME(6)  NULL,
+    INDEX idx_stock_reservations_expiry (status, expires_at),
+    INDEX idx_stock_reservations_product (product_id, warehouse_id)
+);
+
+-- Reconciliar el disponible con lo reservado antes de empezar a reservar
+UPDATE inventory SET reserved_stock = COALESCE(reserved_stock, 0),
+                     available_stock = current_stock - COALESCE(reserved_stock, 0);
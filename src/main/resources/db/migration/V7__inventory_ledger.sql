@@ -0,0 +1,37 @@
+-- stock_movements pasa a ser el libro de eventos de inventario (solo inserciones) y
+-- inventory.current_stock su proyección. Tipos: ENTRADA | SALIDA | AJUSTE | DEVOLUCION | TRANSFERENCIA
+
+-- Saldo inicial: lo que current_stock tenía antes de que existiera el libro, para que la suma
+-- de eventos por (producto, almacén) reproduzca el stock actual
+INSERT INTO stock_movements (product_id, warehouse_id, movement_type, quantity, amount, reference, created_at)
+SELECT i.product_id, i.warehouse_id, 'AJUSTE', i.current_stock - COALESCE(m.total, 0), 0, 'SALDO-INICIAL',
+       COALESCE(m.first_movement - INTERVAL 1 SECOND, CURRENT_TIMESTAMP(6))
+FROM inventory i
+LEFT JOIN (SELECT product_id, warehouse_id, SUM(quantity) AS total, MIN(created_at) AS first_movement
+           FROM stock_movements GROUP BY product_id, warehouse_id) m
+       ON m.product_id = i.product_id AND m.warehouse_id = i.warehouse_id
+WHERE i.current_stock <> COALESCE(m.total, 0);
+
+-- Cola de eventos por clave posterior a una instantánea
+CREATE INDEX idx_stock_movements_key ON stock_movements (product_id, warehouse_id, id);
+
+-- Instantánea por (producto, almacén): stock acumulado de todos los eventos hasta el
+-- watermark de la última corrida; la proyección se reconstruye con instantánea + cola (id > watermark)
+CREATE TABLE inventory_snapshots (
+    product_id       BIGINT      NOT NULL,
+    warehouse_id     BIGINT      NOT NULL,
+    stock            BIGINT      NOT NULL,
+    last_movement_id BIGINT      NOT NULL, -- watermark de la última corrida que modificó la fila
+    taken_at         DATETIME(6) NOT NULL,
+    PRIMARY KEY (product_id, warehouse_id)
+);
+
+-- Corridas de instantáneas: cada una acumula los eventos con id en (from_movement_id, to_movement_id].
+-- La unicidad de from_movement_id impide que dos corridas concurrentes sumen el mismo tramo
+CREATE TABLE inventory_snapshot_runs (
+    id               BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    from_movement_id BIGINT      NOT NULL,
+    to_movement_id   BIGINT      NOT NULL,
+    taken_at         DATETIME(6) NOT NULL,
+    UNIQUE KEY uk_inventory_snapshot_runs_from (from_movement_id)
+);
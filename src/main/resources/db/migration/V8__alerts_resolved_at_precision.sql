@@ -0,0 +1,3 @@
+-- resolved_at con microsegundos: marca de la resolución frente a la hora de la base de datos que
+-- devuelve la reconciliación de contadores de alertas abiertas
+ALTER TABLE alerts MODIFY COLUMN resolved_at DATETIME(6) NULL;
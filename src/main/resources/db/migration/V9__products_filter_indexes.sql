@@ -0,0 +1,4 @@
+-- Listado paginado por keyset filtrando por categoría o marca: el índice (filtro, id) resuelve
+-- el filtro y entrega las filas ya ordenadas por id desde el cursor, sin ordenar ni recorrer la tabla
+CREATE INDEX idx_products_category_id ON products (category, id);
+CREATE INDEX idx_products_brand_id ON products (brand, id);
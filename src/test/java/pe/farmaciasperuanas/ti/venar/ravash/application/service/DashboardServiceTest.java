@@ -0,0 +1,107 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.DashboardDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Inventory;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Versión y ETag del dashboard con predicciones simuladas: un recálculo sin cambios de datos
+ * conserva el ETag, y un cambio real lo avanza.
+ */
+class DashboardServiceTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private ProductRepository productRepository;
+    private InventoryRepository inventoryRepository;
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        inventoryRepository = mock(InventoryRepository.class);
+        AlertRepository alertRepository = mock(AlertRepository.class);
+        ProductService productService = mock(ProductService.class);
+        InventoryService inventoryService = mock(InventoryService.class);
+        ProductCache productCache = mock(ProductCache.class);
+
+        Product product = Product.builder()
+                .id(PRODUCT_ID)
+                .sku("SKU-1")
+                .name("Paracetamol 500mg")
+                .averageDailySales(10.0)
+                .salesVariability(0.4)
+                .leadTimeDays(7)
+                .build();
+        when(productRepository.findByActiveTrue()).thenReturn(Flux.just(product));
+        when(productCache.findById(PRODUCT_ID)).thenReturn(Mono.just(product));
+        stock(20);
+
+        when(productRepository.count()).thenReturn(Mono.just(1L));
+        when(inventoryRepository.countWarehouses()).thenReturn(Mono.just(1L));
+        when(inventoryRepository.calculateTotalInventoryValue()).thenReturn(Mono.just(50.0));
+        when(productService.getAverageStockHealth()).thenReturn(Mono.just(75.0));
+        when(productService.getTopLowStockProducts(anyInt())).thenReturn(Flux.empty());
+        when(productService.getTopOverstockProducts(anyInt())).thenReturn(Flux.empty());
+        when(productService.getTopExpiringProducts(anyInt())).thenReturn(Flux.empty());
+        when(alertRepository.countByResolvedFalseAndSeverity(anyString())).thenReturn(Mono.just(0L));
+        when(alertRepository.findRecentAlerts(any())).thenReturn(Flux.empty());
+        when(inventoryService.getDailyRollups(anyInt())).thenReturn(Flux.empty());
+
+        PredictionService predictionService = new PredictionService(productRepository, productCache, inventoryRepository);
+        dashboardService = new DashboardService(productRepository, inventoryRepository, alertRepository,
+                productService, predictionService, mock(OpenAlertCounters.class), inventoryService, productCache,
+                mock(InventoryValuation.class));
+        // Sin TTL: cada lectura recalcula el snapshot
+        ReflectionTestUtils.setField(dashboardService, "cacheTtlSeconds", 0L);
+        ReflectionTestUtils.setField(dashboardService, "cacheRefreshAheadSeconds", 0L);
+        ReflectionTestUtils.setField(dashboardService, "cacheLatencyBudgetMs", 5_000L);
+        dashboardService.initCache();
+    }
+
+    @Test
+    void unchangedSnapshotKeepsItsEtag() {
+        DashboardDTO first = dashboardService.getDashboardData().block();
+        assertFalse(first.getUrgentPredictions().isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            DashboardDTO next = dashboardService.getDashboardData().block();
+            assertEquals(DashboardService.etagOf(first), DashboardService.etagOf(next));
+        }
+    }
+
+    @Test
+    void changedStockAdvancesEtag() {
+        DashboardDTO first = dashboardService.getDashboardData().block();
+
+        stock(5);
+        DashboardDTO next = dashboardService.getDashboardData().block();
+
+        assertNotEquals(DashboardService.etagOf(first), DashboardService.etagOf(next));
+    }
+
+    private void stock(int units) {
+        when(inventoryRepository.findByProductId(PRODUCT_ID)).thenReturn(Flux.just(Inventory.builder()
+                .productId(PRODUCT_ID)
+                .warehouseId(1L)
+                .currentStock(units)
+                .build()));
+    }
+}
@@ -0,0 +1,69 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockMovementDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Inventory;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepositoryCustom;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.StockMovementRepository;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Las salidas de tienda pasan por el disponible en memoria (current_stock - reserved_stock) antes de
+ * llegar a la base de datos, y devuelven lo tomado si el movimiento no se aplica.
+ */
+class InventoryServiceTest {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final long WAREHOUSE_ID = 1L;
+
+    private StockMovementIngestor ingestor;
+    private StockAvailabilityGate gate;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+        when(inventoryRepository.findByProductIdAndWarehouseId(PRODUCT_ID, WAREHOUSE_ID))
+                .thenReturn(Mono.just(Inventory.builder().productId(PRODUCT_ID).warehouseId(WAREHOUSE_ID).build()));
+        // 10 en stock, 8 reservados: solo 2 disponibles para la venta en tienda
+        InventoryRepositoryCustom inventoryRepositoryCustom = mock(InventoryRepositoryCustom.class);
+        when(inventoryRepositoryCustom.findAvailableStock(PRODUCT_ID, WAREHOUSE_ID)).thenReturn(Mono.just(2));
+        gate = new StockAvailabilityGate(inventoryRepositoryCustom, 30);
+        ingestor = mock(StockMovementIngestor.class);
+        inventoryService = new InventoryService(inventoryRepository, ingestor, mock(StockMovementRepository.class), gate);
+    }
+
+    @Test
+    void saleBeyondAvailableStockIsRejectedBeforeReachingDatabase() {
+        assertThrows(RuntimeException.class, () -> inventoryService.registerMovement(sale(3)).block());
+        verify(ingestor, never()).submitAll(anyList());
+    }
+
+    @Test
+    void failedSaleReturnsUnitsToAvailableStock() {
+        when(ingestor.submitAll(anyList())).thenReturn(Mono.error(new RuntimeException("Cola de movimientos saturada")));
+
+        assertThrows(RuntimeException.class, () -> inventoryService.registerMovement(sale(2)).block());
+        assertEquals(true, gate.tryAcquire(PRODUCT_ID, WAREHOUSE_ID, 2).block());
+    }
+
+    private static StockMovementDTO sale(int quantity) {
+        StockMovementDTO movement = new StockMovementDTO();
+        movement.setProductId(PRODUCT_ID);
+        movement.setWarehouseId(WAREHOUSE_ID);
+        movement.setQuantity(quantity);
+        movement.setType(MovementType.SALIDA);
+        return movement;
+    }
+}
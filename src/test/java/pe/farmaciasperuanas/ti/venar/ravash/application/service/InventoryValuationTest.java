@@ -0,0 +1,99 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AppliedMovements;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.InventoryValuationRow;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.WarehouseStock;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Ajustes que llegan mientras corre la reconciliación: se reaplican solo los posteriores a la hora
+ * en que la consulta leyó, y los movimientos se valorizan al costo que vio su transacción.
+ */
+class InventoryValuationTest {
+
+    private static final LocalDateTime TAKEN_AT = LocalDateTime.of(2026, 10, 1, 12, 0);
+    private static final long PRODUCT_ID = 1L;
+    private static final long WAREHOUSE_ID = 1L;
+
+    private InventoryRepository inventoryRepository;
+    private InventoryValuation valuation;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepository = mock(InventoryRepository.class);
+        valuation = new InventoryValuation(inventoryRepository);
+        when(inventoryRepository.sumValuationByWarehouseAndCategory())
+                .thenReturn(Flux.just(row(100_000, TAKEN_AT.minusHours(1))));
+        valuation.reconcile();
+    }
+
+    @Test
+    void adjustmentsDuringReconcileAreReplayedOnlyWhenAfterQuery() {
+        Sinks.One<List<InventoryValuationRow>> query = Sinks.one();
+        when(inventoryRepository.sumValuationByWarehouseAndCategory())
+                .thenReturn(query.asMono().flatMapMany(Flux::fromIterable));
+        valuation.reconcile();
+
+        // 10 unidades a 2.50 antes de la lectura (ya incluidas) y 4 después
+        valuation.onStockDeltas(List.of(delta(10)), applied("2.50", TAKEN_AT.minusSeconds(1)));
+        valuation.onStockDeltas(List.of(delta(4)), applied("2.50", TAKEN_AT.plusSeconds(1)));
+        assertEquals(new BigDecimal("1035.00"), valuation.getTotalValue());
+
+        query.tryEmitValue(List.of(row(102_500, TAKEN_AT)));
+
+        assertEquals(new BigDecimal("1035.00"), valuation.getTotalValue());
+        assertEquals(new BigDecimal("1035.00"), valuation.getValuation().byCategory().get("ANALGESICOS"));
+    }
+
+    @Test
+    void costChangeRevaluesStockReadAfterIt() {
+        when(inventoryRepository.sumStockByWarehouse(PRODUCT_ID)).thenReturn(Flux.just(
+                WarehouseStock.builder().warehouseId(WAREHOUSE_ID).stock(40L).readAt(TAKEN_AT.plusMinutes(1)).build()));
+
+        valuation.onProductChanged(PRODUCT_ID, new BigDecimal("2.50"), "ANALGESICOS",
+                new BigDecimal("3.00"), "ANALGESICOS").block();
+
+        assertEquals(new BigDecimal("1020.00"), valuation.getTotalValue());
+    }
+
+    private static StockDelta delta(int quantity) {
+        return StockDelta.builder()
+                .productId(PRODUCT_ID)
+                .warehouseId(WAREHOUSE_ID)
+                .quantity(quantity)
+                .movementType(MovementType.ENTRADA)
+                .build();
+    }
+
+    private static AppliedMovements applied(String costPrice, LocalDateTime appliedAt) {
+        return AppliedMovements.builder()
+                .costPrices(Map.of(PRODUCT_ID, new BigDecimal(costPrice)))
+                .categories(Map.of(PRODUCT_ID, "ANALGESICOS"))
+                .appliedAt(appliedAt)
+                .build();
+    }
+
+    private static InventoryValuationRow row(long valueCents, LocalDateTime takenAt) {
+        return InventoryValuationRow.builder()
+                .warehouseId(WAREHOUSE_ID)
+                .category("ANALGESICOS")
+                .valueCents(valueCents)
+                .takenAt(takenAt)
+                .build();
+    }
+}
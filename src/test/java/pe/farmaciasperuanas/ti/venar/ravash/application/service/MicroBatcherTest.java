@@ -0,0 +1,79 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Agrupado por ventana con un procesador lento: sin desbordes, sin pedidos colgados y con la
+ * capacidad acotada respetada.
+ */
+class MicroBatcherTest {
+
+    private MicroBatcher<Integer, Integer> batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.stop();
+    }
+
+    @Test
+    void slowProcessorThrottlesBatchingInsteadOfOverflowing() {
+        AtomicInteger batches = new AtomicInteger();
+        batcher = new MicroBatcher<>("test", 10, Duration.ofMillis(1), 1, Integer.MAX_VALUE, batch ->
+                Mono.delay(Duration.ofMillis(20))
+                        .doOnNext(tick -> {
+                            batches.incrementAndGet();
+                            batch.forEach(request -> request.complete(request.item() * 2));
+                        })
+                        .then());
+        batcher.start();
+
+        List<Integer> results = Flux.range(0, 500)
+                .flatMap(batcher::submit, 500)
+                .collectList()
+                .block(Duration.ofSeconds(30));
+
+        assertEquals(500, results.size());
+        assertEquals(0, batcher.getRestarts());
+        assertEquals(0, batcher.getPending());
+        assertTrue(batches.get() <= 100);
+    }
+
+    @Test
+    void requestsLeftUnresolvedOrFailedByProcessorAreFailed() {
+        batcher = new MicroBatcher<>("test", 10, Duration.ofMillis(1), 1, Integer.MAX_VALUE, batch -> {
+            batch.stream().filter(request -> request.item() == 1).forEach(request -> request.complete(1));
+            return batch.stream().anyMatch(request -> request.item() == 3)
+                    ? Mono.error(new IllegalArgumentException("boom"))
+                    : Mono.empty();
+        });
+        batcher.start();
+
+        assertEquals(1, batcher.submit(1).block(Duration.ofSeconds(5)));
+        assertThrows(IllegalStateException.class, () -> batcher.submit(2).block(Duration.ofSeconds(5)));
+        assertThrows(IllegalArgumentException.class, () -> batcher.submit(3).block(Duration.ofSeconds(5)));
+        assertEquals(0, batcher.getPending());
+    }
+
+    @Test
+    void rejectsRequestsBeyondCapacity() {
+        batcher = new MicroBatcher<>("test", 10, Duration.ofMillis(1), 1, 2, batch -> Mono.never());
+        batcher.start();
+
+        batcher.submit(1).subscribe(null, error -> {});
+        batcher.submit(2).subscribe(null, error -> {});
+
+        assertThrows(MicroBatcher.QueueFullException.class, () -> batcher.submit(3).block(Duration.ofSeconds(5)));
+        assertEquals(2, batcher.getPending());
+    }
+}
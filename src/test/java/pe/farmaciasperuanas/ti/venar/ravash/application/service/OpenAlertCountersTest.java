@@ -0,0 +1,101 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Alert;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AlertCount;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.AlertRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cambios que llegan mientras corre la consulta de reconciliación: se reaplican solo los que su
+ * resultado no incluye según el mayor id y la hora que devuelve la misma consulta.
+ */
+class OpenAlertCountersTest {
+
+    private static final LocalDateTime TAKEN_AT = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    private AlertRepository alertRepository;
+    private OpenAlertCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        alertRepository = mock(AlertRepository.class);
+        counters = new OpenAlertCounters(alertRepository);
+    }
+
+    @Test
+    void changesDuringReconcileAreReplayedOnlyWhenAfterHighWaterMark() {
+        reconcileWith(Flux.just(count("HIGH", "LOW_STOCK", 2, 10L)));
+        assertEquals(2, counters.countBySeverity("HIGH"));
+
+        Sinks.One<List<AlertCount>> query = Sinks.one();
+        when(alertRepository.countOpenBySeverityAndType())
+                .thenReturn(query.asMono().flatMapMany(Flux::fromIterable));
+        counters.reconcile();
+
+        // Registrados con la consulta en curso: el alta 11 ya está en su resultado, el alta 12 y el cierre no
+        counters.onCreated(alert(11L, null));
+        counters.onCreated(alert(12L, null));
+        counters.onResolved(alert(6L, TAKEN_AT.plusSeconds(1)));
+        assertEquals(3, counters.countBySeverity("HIGH"));
+
+        query.tryEmitValue(List.of(count("HIGH", "LOW_STOCK", 3, 11L)));
+
+        // 3 del resultado (incluye el alta 11) + alta 12 - cierre
+        assertEquals(3, counters.countBySeverity("HIGH"));
+        assertEquals(3, counters.countByType("LOW_STOCK"));
+    }
+
+    @Test
+    void changesAfterReconcileApplyOnce() {
+        reconcileWith(Flux.just(count("HIGH", "LOW_STOCK", 1, 3L)));
+
+        counters.onCreated(alert(4L, null));
+        counters.onCreated(alert(5L, null));
+        counters.onResolved(alert(1L, TAKEN_AT.plusMinutes(1)));
+
+        assertEquals(2, counters.countBySeverity("HIGH"));
+    }
+
+    @Test
+    void noOpenAlertsStillReturnsHighWaterMark() {
+        reconcileWith(Flux.just(AlertCount.builder().total(0L).maxId(7L).takenAt(TAKEN_AT).build()));
+
+        assertEquals(true, counters.isReady());
+        assertEquals(0, counters.countBySeverity("HIGH"));
+    }
+
+    private void reconcileWith(Flux<AlertCount> rows) {
+        when(alertRepository.countOpenBySeverityAndType()).thenReturn(rows);
+        counters.reconcile();
+    }
+
+    private static AlertCount count(String severity, String type, long total, long maxId) {
+        return AlertCount.builder()
+                .severity(severity)
+                .type(type)
+                .total(total)
+                .maxId(maxId)
+                .takenAt(TAKEN_AT)
+                .build();
+    }
+
+    private static Alert alert(Long id, LocalDateTime resolvedAt) {
+        return Alert.builder()
+                .id(id)
+                .severity("HIGH")
+                .type("LOW_STOCK")
+                .resolved(resolvedAt != null)
+                .resolvedAt(resolvedAt)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Lecturas que fallan en caché y terminan después de una escritura concurrente: lo leído antes
+ * de la escritura no reemplaza a la versión nueva.
+ */
+class ProductCacheTest {
+
+    private static final long PRODUCT_ID = 1L;
+
+    private ProductRepository productRepository;
+    private ProductCache cache;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        cache = new ProductCache(productRepository, 100, 10);
+    }
+
+    @Test
+    void loadStartedBeforeUpdateIsNotCached() {
+        Sinks.One<Product> read = Sinks.one();
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(read.asMono());
+        Mono<Product> miss = cache.findById(PRODUCT_ID).cache();
+        miss.subscribe();
+
+        // updateProduct guarda y refresca la caché mientras la lectura sigue en curso
+        cache.put(product("3.00"));
+        read.tryEmitValue(product("2.50"));
+
+        assertEquals("2.50", miss.block().getCostPrice().toPlainString());
+        assertEquals("3.00", cache.findById(PRODUCT_ID).block().getCostPrice().toPlainString());
+        assertEquals(1, cache.getStats().discardedLoads());
+        assertEquals(1, cache.getStats().hits());
+    }
+
+    @Test
+    void loadWithoutConcurrentWritesIsCached() {
+        when(productRepository.findById(PRODUCT_ID)).thenReturn(Mono.just(product("2.50")));
+
+        cache.findById(PRODUCT_ID).block();
+        cache.findById(PRODUCT_ID).block();
+
+        assertEquals(1, cache.getStats().misses());
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(0, cache.getStats().discardedLoads());
+    }
+
+    private static Product product(String costPrice) {
+        return Product.builder()
+                .id(PRODUCT_ID)
+                .sku("SKU-1")
+                .costPrice(new BigDecimal(costPrice))
+                .build();
+    }
+}
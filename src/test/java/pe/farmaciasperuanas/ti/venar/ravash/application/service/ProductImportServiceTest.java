@@ -0,0 +1,85 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductImportEvent;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepositoryCustom;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Importación NDJSON: las líneas que no describen un producto fallan solas, y las altas se cuentan
+ * con las filas que el INSERT realmente escribió.
+ */
+class ProductImportServiceTest {
+
+    private ProductRepository productRepository;
+    private ProductRepositoryCustom productRepositoryCustom;
+    private ProductImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        productRepositoryCustom = mock(ProductRepositoryCustom.class);
+        when(productRepository.findBySkuIn(anyCollection())).thenReturn(Flux.empty());
+        importService = new ProductImportService(productRepository, productRepositoryCustom,
+                mock(ProductCache.class), mock(InventoryValuation.class), mock(ProductSearchIndex.class),
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "batchSize", 500);
+    }
+
+    @Test
+    void nullLineFailsOnlyThatRow() {
+        when(productRepositoryCustom.upsertAll(anyList(), anyBoolean())).thenReturn(Mono.just(2L));
+
+        List<ProductImportEvent> events = importNdjson(product("SKU-1"), "null", product("SKU-2"));
+
+        ProductImportEvent error = events.get(0);
+        assertEquals("ERROR", error.getEvent());
+        assertEquals(2L, error.getLine());
+        ProductImportEvent summary = events.get(events.size() - 1);
+        assertEquals(2L, summary.getInserted());
+        assertEquals(1L, summary.getFailed());
+    }
+
+    @Test
+    void skuInsertedConcurrentlyIsNotCountedAsInserted() {
+        // Ninguno existía al leer el lote, pero el INSERT IGNORE solo escribió uno
+        when(productRepositoryCustom.upsertAll(anyList(), anyBoolean())).thenReturn(Mono.just(1L));
+
+        List<ProductImportEvent> events = importNdjson(product("SKU-1"), product("SKU-2"));
+
+        ProductImportEvent summary = events.get(events.size() - 1);
+        assertEquals(1L, summary.getInserted());
+        assertEquals(0L, summary.getUpdated());
+        assertEquals(1L, summary.getFailed());
+    }
+
+    private List<ProductImportEvent> importNdjson(String... lines) {
+        DataBuffer body = DefaultDataBufferFactory.sharedInstance
+                .wrap((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        return importService.importProducts(Flux.just(body), ProductImportService.Format.NDJSON, false)
+                .collectList()
+                .block();
+    }
+
+    private static String product(String sku) {
+        return "{\"sku\":\"" + sku + "\",\"name\":\"Producto\",\"costPrice\":1.50,\"salePrice\":2.00,\"minStock\":5}";
+    }
+}
@@ -0,0 +1,107 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.ProductDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.Product;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockLevel;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepository;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.ProductRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Equivalencia entre la salud de stock promedio agregada en SQL (getAverageStockHealth) y el
+ * cálculo anterior, que enriquecía cada producto activo y promediaba su stockHealth.
+ */
+class ProductServiceTest {
+
+    private ProductRepository productRepository;
+    private InventoryRepository inventoryRepository;
+    private InventoryStockLoader inventoryStockLoader;
+    private ProductService productService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        inventoryRepository = mock(InventoryRepository.class);
+        inventoryStockLoader = mock(InventoryStockLoader.class);
+        productService = new ProductService(productRepository, inventoryRepository, inventoryStockLoader,
+                mock(ProductCache.class), mock(ProductSearchIndex.class), mock(InventoryValuation.class));
+    }
+
+    @Test
+    void averageStockHealthMatchesEnrichAndAveragePath() {
+        List<Product> products = List.of(
+                product(1L, 10, 100),     // dentro del rango
+                product(2L, 10, 100),     // bajo el mínimo
+                product(3L, 10, 100),     // sobre el máximo
+                product(4L, null, 100),   // sin mínimo
+                product(5L, 10, null),    // sin máximo
+                product(6L, null, null),  // sin umbrales
+                product(7L, 20, 50),      // sin inventario
+                product(8L, null, null)   // sin umbrales ni inventario
+        );
+        Map<Long, Integer> stock = Map.of(1L, 55, 2L, 3, 3L, 180, 4L, 40, 5L, 500, 6L, 12);
+
+        assertEquivalent(products, stock);
+    }
+
+    @Test
+    void averageStockHealthWithoutActiveProductsDefaultsTo75() {
+        assertEquivalent(List.of(), Map.of());
+        assertEquals(75.0, productService.getAverageStockHealth().block());
+    }
+
+    private void assertEquivalent(List<Product> products, Map<Long, Integer> stock) {
+        when(productRepository.findByActiveTrue()).thenReturn(Flux.fromIterable(products));
+        when(inventoryStockLoader.load(anyLong()))
+                .thenAnswer(call -> Mono.just(stock.getOrDefault(call.<Long>getArgument(0), 0)));
+        // LEFT JOIN ... GROUP BY: los productos sin inventario llegan con total_stock = 0
+        when(inventoryRepository.findActiveStockLevels()).thenReturn(Flux.fromIterable(products)
+                .map(product -> ProductStockLevel.builder()
+                        .productId(product.getId())
+                        .minStock(product.getMinStock())
+                        .maxStock(product.getMaxStock())
+                        .totalStock(stock.getOrDefault(product.getId(), 0))
+                        .build()));
+
+        Double expected = legacyAverageStockHealth().block();
+        Double actual = productService.getAverageStockHealth().block();
+
+        assertEquals(Objects.requireNonNull(expected), Objects.requireNonNull(actual), 1e-9);
+    }
+
+    // Cálculo anterior de DashboardService.calculateAverageStockHealth()
+    private Mono<Double> legacyAverageStockHealth() {
+        return productService.getAllProducts()
+                .map(ProductDTO::getStockHealth)
+                .filter(health -> health != null)
+                .collect(ArrayList<Double>::new, List::add)
+                .map(healthList -> healthList.isEmpty() ? 75.0 : healthList.stream()
+                        .mapToDouble(Double::doubleValue)
+                        .average()
+                        .orElse(75.0));
+    }
+
+    private static Product product(Long id, Integer minStock, Integer maxStock) {
+        return Product.builder()
+                .id(id)
+                .sku("SKU-" + id)
+                .name("Producto " + id)
+                .minStock(minStock)
+                .maxStock(maxStock)
+                .active(true)
+                .build();
+    }
+}
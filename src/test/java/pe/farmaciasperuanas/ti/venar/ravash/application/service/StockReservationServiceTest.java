@@ -0,0 +1,247 @@
+package pe.farmaciasperuanas.ti.venar.ravash.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.dto.StockReservationDTO;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.AppliedMovements;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.MovementType;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ReservationStatus;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockDelta;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.StockReservation;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.InventoryRepositoryCustom;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository.StockReservationRepository;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reservas concurrentes contra un solo SKU. La base de datos se simula con una fila de inventario
+ * cuyo UPDATE condicional toma el bloqueo de la fila durante un tiempo fijo, como el de MySQL.
+ * Se mide el rendimiento con y sin el disponible en memoria y se verifica que nunca se sobrevenda.
+ */
+@Slf4j
+class StockReservationServiceTest {
+
+    private static final long PRODUCT_ID = 1L;
+    private static final long WAREHOUSE_ID = 1L;
+    private static final int STOCK = 1_000;
+    private static final int REQUESTS = 20_000;
+    private static final int CONCURRENCY = 256;
+    private static final long ROW_LOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private InventoryRow row;
+    private StockReservationRepository stockReservationRepository;
+    private TransactionalOperator transactionalOperator;
+
+    @BeforeEach
+    void setUp() {
+        row = new InventoryRow(STOCK);
+        stockReservationRepository = mock(StockReservationRepository.class);
+        AtomicLong ids = new AtomicLong();
+        when(stockReservationRepository.save(any(StockReservation.class))).thenAnswer(call -> {
+            StockReservation reservation = call.getArgument(0);
+            reservation.setId(ids.incrementAndGet());
+            return Mono.just(reservation);
+        });
+        transactionalOperator = mock(TransactionalOperator.class);
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(call -> call.getArgument(0));
+    }
+
+    @Test
+    void concurrentReservesOnSingleSkuNeverOversell() {
+        Run gated = run(service(new StockAvailabilityGate(row, 30)));
+        row = new InventoryRow(STOCK);
+        Run ungated = run(service(openGate()));
+
+        log.info("Single SKU reservations with gate: {} ops/s, {} row locks", gated.opsPerSecond(), gated.rowLocks());
+        log.info("Single SKU reservations without gate: {} ops/s, {} row locks", ungated.opsPerSecond(), ungated.rowLocks());
+
+        for (Run run : List.of(gated, ungated)) {
+            assertEquals(STOCK, run.reserved());
+            assertEquals(REQUESTS - STOCK, run.rejected());
+            assertEquals(STOCK, run.reservedStock());
+        }
+        // Con el disponible en memoria, las reservas imposibles no llegan a bloquear la fila
+        assertTrue(gated.rowLocks() < ungated.rowLocks());
+    }
+
+    @Test
+    void cancelledReserveReturnsUnitsToGate() {
+        StockAvailabilityGate gate = new StockAvailabilityGate(row, 30);
+        InventoryRepositoryCustom stalled = mock(InventoryRepositoryCustom.class);
+        when(stalled.reserveStock(anyLong(), anyLong(), anyInt())).thenReturn(Mono.never());
+        StockReservationService service = new StockReservationService(stockReservationRepository, stalled,
+                gate, mock(StockMovementIngestor.class), transactionalOperator, 900, 86400, 500);
+
+        Disposable pending = service.reserve(request(400)).subscribe();
+        assertEquals(false, gate.tryAcquire(PRODUCT_ID, WAREHOUSE_ID, STOCK).block());
+
+        pending.dispose();
+        assertEquals(true, gate.tryAcquire(PRODUCT_ID, WAREHOUSE_ID, STOCK).block());
+    }
+
+    @Test
+    void confirmSubmitsSaleFromReservationThroughIngestor() {
+        StockMovementIngestor ingestor = mock(StockMovementIngestor.class);
+        when(ingestor.submit(any(StockDelta.class))).thenReturn(Mono.empty());
+        StockReservationService service = pendingReservation(ingestor);
+
+        assertEquals(ReservationStatus.CONFIRMED, service.confirm(7L).block().getStatus());
+
+        ArgumentCaptor<StockDelta> sale = ArgumentCaptor.forClass(StockDelta.class);
+        verify(ingestor).submit(sale.capture());
+        assertEquals(-5, sale.getValue().getQuantity());
+        assertEquals(5, sale.getValue().getReservedQuantity());
+        assertEquals(MovementType.SALIDA, sale.getValue().getMovementType());
+        assertEquals(1, service.getStats().confirmed());
+    }
+
+    @Test
+    void confirmFailsAndReopensWhenSaleIsNotApplied() {
+        StockMovementIngestor ingestor = mock(StockMovementIngestor.class);
+        when(ingestor.submit(any(StockDelta.class))).thenReturn(Mono.error(new RuntimeException("Stock insuficiente")));
+        when(stockReservationRepository.reopenConfirmed(7L)).thenReturn(Mono.just(1));
+        StockReservationService service = pendingReservation(ingestor);
+
+        assertThrows(RuntimeException.class, () -> service.confirm(7L).block());
+        verify(stockReservationRepository).reopenConfirmed(7L);
+        assertEquals(0, service.getStats().confirmed());
+    }
+
+    private StockReservationService pendingReservation(StockMovementIngestor ingestor) {
+        StockReservation reservation = StockReservation.builder()
+                .id(7L)
+                .productId(PRODUCT_ID)
+                .warehouseId(WAREHOUSE_ID)
+                .quantity(5)
+                .status(ReservationStatus.PENDING)
+                .build();
+        when(stockReservationRepository.findById(7L)).thenReturn(Mono.just(reservation));
+        when(stockReservationRepository.closePending(7L, ReservationStatus.CONFIRMED.name())).thenReturn(Mono.just(1));
+        return new StockReservationService(stockReservationRepository, row, new StockAvailabilityGate(row, 30),
+                ingestor, transactionalOperator, 900, 86400, 500);
+    }
+
+    private Run run(StockReservationService service) {
+        AtomicInteger rejected = new AtomicInteger();
+        long startedAt = System.nanoTime();
+        Long reserved = Flux.range(0, REQUESTS)
+                .flatMap(i -> service.reserve(request(1))
+                        .onErrorResume(error -> {
+                            rejected.incrementAndGet();
+                            return Mono.empty();
+                        }), CONCURRENCY)
+                .count()
+                .block();
+        long elapsedNanos = System.nanoTime() - startedAt;
+        return new Run(reserved, rejected.get(), row.reserved.get(), row.locks.get(),
+                REQUESTS * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos));
+    }
+
+    private StockReservationService service(StockAvailabilityGate gate) {
+        return new StockReservationService(stockReservationRepository, row, gate,
+                mock(StockMovementIngestor.class), transactionalOperator, 900, 86400, 500);
+    }
+
+    // Sin disponible en memoria: todas las reservas van a la base de datos
+    private static StockAvailabilityGate openGate() {
+        StockAvailabilityGate gate = mock(StockAvailabilityGate.class);
+        when(gate.tryAcquire(anyLong(), anyLong(), anyInt())).thenReturn(Mono.just(true));
+        return gate;
+    }
+
+    private static StockReservationDTO request(int quantity) {
+        return StockReservationDTO.builder()
+                .productId(PRODUCT_ID)
+                .warehouseId(WAREHOUSE_ID)
+                .quantity(quantity)
+                .reference("test")
+                .build();
+    }
+
+    private record Run(long reserved, int rejected, int reservedStock, int rowLocks, long opsPerSecond) {}
+
+    /**
+     * Fila de inventario: {@code UPDATE ... SET reserved_stock = reserved_stock + ?
+     * WHERE current_stock - reserved_stock >= ?} bloquea la fila aunque no la modifique.
+     */
+    private static class InventoryRow implements InventoryRepositoryCustom {
+
+        private final int current;
+        private final AtomicInteger reserved = new AtomicInteger();
+        private final AtomicInteger locks = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private InventoryRow(int current) {
+            this.current = current;
+        }
+
+        @Override
+        public Mono<Boolean> reserveStock(Long productId, Long warehouseId, int quantity) {
+            return Mono.fromCallable(() -> {
+                lock.lock();
+                try {
+                    locks.incrementAndGet();
+                    LockSupport.parkNanos(ROW_LOCK_NANOS);
+                    if (current - reserved.get() < quantity) {
+                        return false;
+                    }
+                    reserved.addAndGet(quantity);
+                    return true;
+                } finally {
+                    lock.unlock();
+                }
+            }).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        @Override
+        public Mono<Integer> findAvailableStock(Long productId, Long warehouseId) {
+            return Mono.fromCallable(() -> current - reserved.get());
+        }
+
+        @Override
+        public Mono<Boolean> releaseReservedStock(Long productId, Long warehouseId, int quantity) {
+            return Mono.fromCallable(() -> {
+                reserved.addAndGet(-quantity);
+                return true;
+            });
+        }
+
+        @Override
+        public Mono<Void> updateStock(Long productId, Long warehouseId, Integer quantity) {
+            return Mono.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Mono<Void> updateStock(Long productId, Long warehouseId, Integer quantity, MovementType type,
+                                      String reference) {
+            return Mono.error(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Mono<AppliedMovements> applyDeltas(List<List<StockDelta>> groups) {
+            return Mono.error(new UnsupportedOperationException());
+        }
+    }
+}
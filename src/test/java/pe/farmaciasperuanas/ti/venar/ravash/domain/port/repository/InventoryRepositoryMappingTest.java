@@ -0,0 +1,123 @@
+package pe.farmaciasperuanas.ti.venar.ravash.domain.port.repository;
+
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.MySqlDialect;
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext;
+import org.springframework.data.r2dbc.repository.Query;
+import pe.farmaciasperuanas.ti.venar.ravash.domain.model.ProductStockLevel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mapeo de findActiveStockLevels a ProductStockLevel: las columnas que devuelve la consulta
+ * (alias incluidos) llegan a las propiedades que usa la salud de stock promedio, con los tipos
+ * que entrega MySQL (BIGINT para CAST(SUM(...) AS SIGNED), INT para los umbrales).
+ */
+class InventoryRepositoryMappingTest {
+
+    private static final Pattern COLUMN = Pattern.compile("(?:\\bAS\\s+(\\w+)|\\w+\\.(\\w+)|(\\w+))\\s*$",
+            Pattern.CASE_INSENSITIVE);
+
+    private final MappingR2dbcConverter converter = new MappingR2dbcConverter(new R2dbcMappingContext(),
+            R2dbcCustomConversions.of(MySqlDialect.INSTANCE, List.of()));
+
+    @Test
+    void activeStockLevelsQueryReturnsColumnsOfProjection() throws NoSuchMethodException {
+        String sql = activeStockLevelsSql();
+        List<String> columns = selectedColumns(sql);
+
+        assertEquals(List.of("product_id", "sku", "name", "min_stock", "max_stock", "total_stock"), columns);
+        // Productos activos sin inventario: LEFT JOIN y COALESCE los traen con total_stock = 0
+        assertTrue(sql.contains("LEFT JOIN inventory"));
+        assertTrue(sql.contains("COALESCE(SUM(i.current_stock), 0)"));
+        assertTrue(sql.contains("WHERE p.active = true"));
+    }
+
+    @Test
+    void activeStockLevelRowMapsWithMySqlTypes() throws NoSuchMethodException {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("product_id", 7L);
+        values.put("sku", "SKU-7");
+        values.put("name", "Producto 7");
+        values.put("min_stock", 10);
+        values.put("max_stock", null);
+        values.put("total_stock", 55L);
+        // La fila trae exactamente las columnas que selecciona la consulta
+        assertEquals(selectedColumns(activeStockLevelsSql()), new ArrayList<>(values.keySet()));
+
+        ProductStockLevel level = converter.read(ProductStockLevel.class, row(values), metadata(values));
+
+        assertEquals(7L, level.getProductId());
+        assertEquals("SKU-7", level.getSku());
+        assertEquals(10, level.getMinStock());
+        assertNull(level.getMaxStock());
+        assertEquals(55, level.getTotalStock());
+    }
+
+    private static String activeStockLevelsSql() throws NoSuchMethodException {
+        return InventoryRepository.class.getMethod("findActiveStockLevels").getAnnotation(Query.class).value();
+    }
+
+    // Columnas de la lista del SELECT externo: alias si lo hay, si no el nombre de la columna
+    private static List<String> selectedColumns(String sql) {
+        String select = sql.substring("SELECT ".length(), sql.toUpperCase(Locale.ROOT).indexOf(" FROM "));
+        List<String> columns = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= select.length(); i++) {
+            char c = i < select.length() ? select.charAt(i) : ',';
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                Matcher matcher = COLUMN.matcher(select.substring(start, i).trim());
+                assertTrue(matcher.find());
+                columns.add(matcher.group(1) != null ? matcher.group(1)
+                        : matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+                start = i + 1;
+            }
+        }
+        return columns;
+    }
+
+    private static Row row(Map<String, Object> values) {
+        Row row = mock(Row.class);
+        when(row.get(anyString())).thenAnswer(call -> values.get(call.<String>getArgument(0)));
+        when(row.get(anyString(), any()))
+                .thenAnswer(call -> values.get(call.<String>getArgument(0)));
+        return row;
+    }
+
+    private static RowMetadata metadata(Map<String, Object> values) {
+        List<ColumnMetadata> columns = new ArrayList<>();
+        for (String name : values.keySet()) {
+            ColumnMetadata column = mock(ColumnMetadata.class);
+            when(column.getName()).thenReturn(name);
+            columns.add(column);
+        }
+        RowMetadata metadata = mock(RowMetadata.class);
+        when(metadata.contains(anyString())).thenAnswer(call -> values.containsKey(call.<String>getArgument(0)));
+        when(metadata.getColumnMetadatas()).thenAnswer(call -> columns);
+        return metadata;
+    }
+}